@@ -17,10 +17,12 @@
 package com.kysylov.python4s;
 
 import jnr.ffi.Pointer;
+import jnr.ffi.annotations.In;
 import jnr.ffi.annotations.LongLong;
 import jnr.ffi.annotations.Out;
 import jnr.ffi.byref.NumberByReference;
 import jnr.ffi.byref.PointerByReference;
+import jnr.ffi.types.size_t;
 import jnr.ffi.types.ssize_t;
 
 public interface LibPython {
@@ -50,6 +52,30 @@ public interface LibPython {
      */
     Pointer PyRun_String(String str, int start, Pointer globals, Pointer locals);
 
+    /**
+     * Parse and compile the Python source code in str, returning the resulting code object.
+     * The start token is given by start; this can be used to constrain the code which can be compiled.
+     * The filename specified by filename is used to construct the code object and may appear in tracebacks
+     * or SyntaxError exception messages. This returns NULL if the code cannot be parsed or compiled.
+     *
+     * @param str      const char*
+     * @param filename const char*
+     * @param start    int
+     * @return PyObject* (received reference)
+     */
+    Pointer Py_CompileString(String str, String filename, int start);
+
+    /**
+     * Evaluate a precompiled code object, given a particular environment for its evaluation.
+     * This environment consists of a dictionary of global variables, a mapping object of local variables.
+     *
+     * @param co      PyObject*
+     * @param globals PyObject*
+     * @param locals  PyObject*
+     * @return PyObject* (received reference)
+     */
+    Pointer PyEval_EvalCode(Pointer co, Pointer globals, Pointer locals);
+
     // Reference Counting
 
     /**
@@ -76,6 +102,19 @@ public interface LibPython {
      */
     Pointer PyErr_Occurred();
 
+    /**
+     * Return true if the current exception matches the given exception type.
+     * Should only be called when an exception is actually set.
+     *
+     * @param exc PyObject*
+     */
+    int PyErr_ExceptionMatches(Pointer exc);
+
+    /**
+     * Clear the error indicator. If the error indicator is not set, there is no effect.
+     */
+    void PyErr_Clear();
+
     /**
      * Retrieve the error indicator into three variables whose addresses are passed.
      * If the error indicator is not set, set all three variables to NULL.
@@ -129,6 +168,16 @@ public interface LibPython {
      */
     Pointer PyImport_ImportModule(String name);
 
+    /**
+     * Reload a module.
+     * Return a new reference to the reloaded module, or NULL with an exception set on failure
+     * (the module still exists in this case).
+     *
+     * @param m PyObject*
+     * @return PyObject* (received reference)
+     */
+    Pointer PyImport_ReloadModule(Pointer m);
+
     // Parsing arguments and building values
 
     /**
@@ -160,21 +209,21 @@ public interface LibPython {
      * Returns the attribute value on success, or NULL on failure.
      *
      * @param o         PyObject*
-     * @param attr_name const char*
+     * @param attr_name PyObject*
      * @return PyObject* (received reference)
      */
-    Pointer PyObject_GetAttrString(Pointer o, String attr_name);
+    Pointer PyObject_GetAttr(Pointer o, Pointer attr_name);
 
     /**
      * Set the value of the attribute named attr_name, for object o, to the value v.
      * Raise an exception and return -1 on failure; return 0 on success.
      *
      * @param o         PyObject*
-     * @param attr_name const char*
+     * @param attr_name PyObject*
      * @param v         PyObject*
      * @return int
      */
-    int PyObject_SetAttrString(Pointer o, String attr_name, Pointer v);
+    int PyObject_SetAttr(Pointer o, Pointer attr_name, Pointer v);
 
     /**
      * Compare the values of o1 and o2 using the operation specified by opid,
@@ -246,6 +295,39 @@ public interface LibPython {
      */
     Pointer PyObject_GetIter(Pointer o);
 
+    /**
+     * Return the length of object o.
+     * If the object o provides either the sequence and mapping protocols, the sequence length is returned.
+     * On error, -1 is returned.
+     *
+     * @param o PyObject*
+     * @return Py_ssize_t
+     */
+    @ssize_t long PyObject_Size(Pointer o);
+
+    // Buffer Protocol
+
+    /**
+     * Send a request to exporter to fill in view as specified by flags.
+     * If the exporter cannot provide a buffer of the exact type, it MUST raise PyExc_BufferError,
+     * set view->obj to NULL and return -1.
+     * On success, fill in view, set view->obj to a new reference to exporter and return 0.
+     *
+     * @param exporter PyObject*
+     * @param view     Py_buffer*
+     * @param flags    int
+     * @return int
+     */
+    int PyObject_GetBuffer(Pointer exporter, Pointer view, int flags);
+
+    /**
+     * Release the buffer view and decrement the reference count for view->obj.
+     * This function MUST be called when the buffer is no longer being used, otherwise reference leaks may occur.
+     *
+     * @param view Py_buffer*
+     */
+    void PyBuffer_Release(Pointer view);
+
     // Call Protocol
 
     /**
@@ -263,28 +345,35 @@ public interface LibPython {
     Pointer PyObject_Call(Pointer callable, Pointer args, Pointer kwargs);
 
     /**
-     * Call a callable Python object callable, with a variable number of PyObject* arguments.
-     * The arguments are provided as a variable number of parameters followed by NULL.
+     * Call a callable Python object callable using the vectorcall calling convention.
+     * args is a C array with the positional arguments followed by the values of the keyword arguments.
+     * nargsf is the number of positional arguments, kwnames is a tuple containing the names of the keyword arguments
+     * or NULL if there are none.
      * Return the result of the call on success, or raise an exception and return NULL on failure.
+     * Exported by the shared library since Python 3.11, an inline function in earlier versions.
      *
      * @param callable PyObject*
-     * @param args     ..., NULL
+     * @param args     PyObject* const*
+     * @param nargsf   size_t
+     * @param kwnames  PyObject*
      * @return PyObject* (received reference)
      */
-    Pointer PyObject_CallFunctionObjArgs(Pointer callable, Pointer... args);
+    Pointer PyObject_Vectorcall(Pointer callable, Pointer args, @size_t long nargsf, Pointer kwnames);
 
     /**
-     * Calls a method of the Python object obj, where the name of the method is given as a Python string object in name.
-     * It is called with a variable number of PyObject* arguments.
-     * The arguments are provided as a variable number of parameters followed by NULL.
+     * Call a method using the vectorcall calling convention, the name of the method is given as a Python string name.
+     * The object whose method is called is args[0], and the args array starting at args[1] represents the arguments of the call.
+     * nargsf is the number of positional arguments including args[0].
      * Return the result of the call on success, or raise an exception and return NULL on failure.
+     * Available since Python 3.9, only called when PyObject_Vectorcall is exported as well.
      *
-     * @param callable PyObject*
-     * @param name     PyObject*
-     * @param args     ..., NULL
+     * @param name    PyObject*
+     * @param args    PyObject* const*
+     * @param nargsf  size_t
+     * @param kwnames PyObject*
      * @return PyObject* (received reference)
      */
-    Pointer PyObject_CallMethodObjArgs(Pointer callable, Pointer name, Pointer... args);
+    Pointer PyObject_VectorcallMethod(Pointer name, Pointer args, @size_t long nargsf, Pointer kwnames);
 
     /**
      * Determine if the object o is callable.
@@ -590,6 +679,17 @@ public interface LibPython {
      */
     Pointer PySequence_GetItem(Pointer o, @ssize_t long i);
 
+    /**
+     * Determine if o contains value.
+     * If an item in o is equal to value, return 1, otherwise return 0. On error, return -1.
+     * This is equivalent to the Python expression value in o.
+     *
+     * @param o     PyObject*
+     * @param value PyObject*
+     * @return int
+     */
+    int PySequence_Contains(Pointer o, Pointer value);
+
     // Mapping Protocol
 
     /**
@@ -634,7 +734,7 @@ public interface LibPython {
      * @return long long
      */
     @LongLong
-    Long PyLong_AsLongLong(Pointer obj);
+    long PyLong_AsLongLong(Pointer obj);
 
     // Boolean Objects
 
@@ -665,7 +765,40 @@ public interface LibPython {
      * @param pyfloat PyObject*
      * @return double
      */
-    Double PyFloat_AsDouble(Pointer pyfloat);
+    double PyFloat_AsDouble(Pointer pyfloat);
+
+    // Bytes Objects
+
+    /**
+     * Return a new bytes object with a copy of the string v as value and length len on success, and NULL on failure.
+     *
+     * @param v   const char*
+     * @param len Py_ssize_t
+     * @return PyObject* (received reference)
+     */
+    Pointer PyBytes_FromStringAndSize(@In byte[] v, @ssize_t long len);
+
+    /**
+     * Return the length of the bytes in bytes object o.
+     * On failure, return -1.
+     *
+     * @param o PyObject*
+     * @return Py_ssize_t
+     */
+    @ssize_t
+    long PyBytes_Size(Pointer o);
+
+    /**
+     * Return a pointer to the contents of o.
+     * The pointer refers to the internal buffer of o, which consists of len(o) + 1 bytes.
+     * The data must not be modified in any way, unless the object was just created using PyBytes_FromStringAndSize(NULL, size).
+     * It must not be deallocated.
+     * If o is not a bytes object at all, PyBytes_AsString() returns NULL and raises TypeError.
+     *
+     * @param o PyObject*
+     * @return char*
+     */
+    Pointer PyBytes_AsString(Pointer o);
 
     // Unicode Objects
 
@@ -677,6 +810,16 @@ public interface LibPython {
      */
     Pointer PyUnicode_FromString(String u);
 
+    /**
+     * A combination of PyUnicode_FromString() and PyUnicode_InternInPlace(),
+     * returning either a new Unicode string object that has been interned,
+     * or a new (“owned”) reference to an earlier interned string object with the same value.
+     *
+     * @param v const char*
+     * @return PyObject* (received reference)
+     */
+    Pointer PyUnicode_InternFromString(String v);
+
     /**
      * Return a pointer to the UTF-8 encoding of the Unicode object.
      * The returned buffer always has an extra null byte appended (not included in size),
@@ -768,6 +911,24 @@ public interface LibPython {
      */
     int PyDict_SetItem(Pointer p, Pointer key, Pointer val);
 
+    /**
+     * Iterate over all key-value pairs in the dictionary p.
+     * The Py_ssize_t referred to by ppos must be initialized to 0 prior to the first call to this function
+     * to start the iteration; the function returns true for each pair in the dictionary,
+     * and false once all pairs have been reported.
+     * The parameters pkey and pvalue should either point to PyObject* variables that will be filled in
+     * with each key and value, respectively, or may be NULL.
+     * Any references returned through them are borrowed.
+     * The dictionary p should not be mutated during iteration.
+     *
+     * @param p      PyObject*
+     * @param ppos   Py_ssize_t*
+     * @param pkey   PyObject**
+     * @param pvalue PyObject**
+     * @return int
+     */
+    int PyDict_Next(Pointer p, Pointer ppos, Pointer pkey, Pointer pvalue);
+
     // Set Objects
 
     /**
@@ -804,6 +965,19 @@ public interface LibPython {
      */
     Pointer PySlice_New(Pointer start, Pointer stop, Pointer step);
 
+    // MemoryView Objects
+
+    /**
+     * Create a memoryview object using mem as the underlying buffer.
+     * flags can be one of PyBUF_READ or PyBUF_WRITE.
+     *
+     * @param mem   char*
+     * @param size  Py_ssize_t
+     * @param flags int
+     * @return PyObject* (received reference)
+     */
+    Pointer PyMemoryView_FromMemory(Pointer mem, @ssize_t long size, int flags);
+
     // Initialization, Finalization, and Threads
 
     /**
@@ -814,6 +988,14 @@ public interface LibPython {
      */
     void Py_SetProgramName(Pointer name);
 
+    /**
+     * Return the version of this Python interpreter.
+     * The first word (up to the first space character) is the current Python version.
+     *
+     * @return const char*
+     */
+    String Py_GetVersion();
+
     /**
      * Initialize the Python interpreter.
      * If initsigs is 0, it skips initialization registration of signal handlers.
@@ -827,4 +1009,60 @@ public interface LibPython {
      * Since 3.7 this function is called by Py_Initialize().
      */
     void PyEval_InitThreads();
+
+    /**
+     * Release the global interpreter lock (if it has been created) and reset the thread state to NULL,
+     * returning the previous thread state (which is not NULL).
+     * If the lock has been created, the current thread must have acquired it.
+     *
+     * @return PyThreadState*
+     */
+    Pointer PyEval_SaveThread();
+
+    /**
+     * Acquire the global interpreter lock (if it has been created) and set the thread state to tstate,
+     * which must not be NULL.
+     * If the lock has been created, the current thread must not have acquired it, otherwise deadlock ensues.
+     *
+     * @param tstate PyThreadState*
+     */
+    void PyEval_RestoreThread(Pointer tstate);
+
+    /**
+     * Ensure that the current thread is ready to call the Python C API regardless of the current state of Python,
+     * or of the global interpreter lock. This may be called as many times as desired by a thread
+     * as long as each call is matched with a call to PyGILState_Release().
+     *
+     * @return PyGILState_STATE
+     */
+    int PyGILState_Ensure();
+
+    /**
+     * Release any resources previously acquired.
+     * After this call, Python’s state will be the same as it was prior to the corresponding PyGILState_Ensure() call.
+     *
+     * @param state PyGILState_STATE
+     */
+    void PyGILState_Release(int state);
+
+    /**
+     * Get the current thread state for this thread.
+     * May return NULL if no GILState API has been used on the current thread.
+     *
+     * @return PyThreadState*
+     */
+    Pointer PyGILState_GetThisThreadState();
+
+    /**
+     * Reset all information in a thread state object. The global interpreter lock must be held.
+     *
+     * @param tstate PyThreadState*
+     */
+    void PyThreadState_Clear(Pointer tstate);
+
+    /**
+     * Destroy the current thread state and release the global interpreter lock.
+     * The thread state must have been reset with a previous call to PyThreadState_Clear().
+     */
+    void PyThreadState_DeleteCurrent();
 }
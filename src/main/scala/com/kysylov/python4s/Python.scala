@@ -16,7 +16,9 @@
 
 package com.kysylov.python4s
 
-import jnr.ffi.LibraryLoader
+import java.util.concurrent.ConcurrentHashMap
+
+import jnr.ffi.{LibraryLoader, LibraryOption}
 
 import scala.language.dynamics
 import scala.sys.process._
@@ -43,6 +45,8 @@ object Python extends Dynamic {
     val library = new PythonLibrary(
       LibraryLoader
         .create(classOf[LibPython])
+        // python reports errors through its error indicator, do not save errno after every call
+        .option(LibraryOption.IgnoreError, true)
         .search(libraryDirectory)
         .load(libraryName)
     )
@@ -67,7 +71,15 @@ object Python extends Dynamic {
     library
   }
 
-  private val builtins = PythonObject(libPython.pyEvalGetBuiltins)
+  private val builtins = PythonScope.detached(PythonObject(libPython.pyEvalGetBuiltins))
+
+  // constants call python while their class is initialized, holding the class initialization lock,
+  // create them before other threads can hold the global interpreter lock and block on that lock
+  PythonObject.Constants.initialize()
+
+  private val modules = new ConcurrentHashMap[String, PythonReference]()
+  private val compiledCode = new PythonCache[(String, Int), PythonReference](capacity = 256)
+  private val mainGlobals = PythonScope.detached(importModule("__main__").__dict__.reference)
 
   /**
     * Call a built-in function.
@@ -76,7 +88,7 @@ object Python extends Dynamic {
     * @param args       arguments
     * @return python object
     */
-  def applyDynamic(methodName: String)(args: PythonObject*): PythonObject = builtins(methodName)(args: _*)
+  def applyDynamic(methodName: String)(args: PythonObject*): PythonObject = builtin(methodName)(args: _*)
 
   /**
     * Call a built-in function with named arguments.
@@ -85,10 +97,8 @@ object Python extends Dynamic {
     * @param args       arguments
     * @return python object
     */
-  def applyDynamicNamed(methodName: String)(args: (String, PythonObject)*): PythonObject = builtins(methodName)(
-    args.collect { case (key, value) if key.isEmpty => value },
-    args.filter { case (key, _) => key.nonEmpty }.toMap
-  )
+  def applyDynamicNamed(methodName: String)(args: (String, PythonObject)*): PythonObject =
+    builtin(methodName).callNamed(args)
 
   /**
     * Get a built-in function.
@@ -96,13 +106,202 @@ object Python extends Dynamic {
     * @param attributeName function name
     * @return python function
     */
-  def selectDynamic(attributeName: String): PythonObject = builtins(attributeName)
+  def selectDynamic(attributeName: String): PythonObject = builtin(attributeName)
+
+  private def builtin(name: String): PythonObject = builtins.getItem(PythonObject(PythonObject.internedName(name)))
+
+  /**
+    * Python None singleton.
+    *
+    * @return python object
+    */
+  def None: PythonObject = PythonObject(PythonObject.Constants.none)
+
+  /**
+    * Python True singleton.
+    *
+    * @return python object
+    */
+  def True: PythonObject = PythonObject(PythonObject.Constants.`true`)
+
+  /**
+    * Python False singleton.
+    *
+    * @return python object
+    */
+  def False: PythonObject = PythonObject(PythonObject.Constants.`false`)
+
+  /**
+    * Python Ellipsis singleton.
+    *
+    * @return python object
+    */
+  def Ellipsis: PythonObject = PythonObject(PythonObject.Constants.ellipsis)
+
+  /**
+    * Python NotImplemented singleton.
+    *
+    * @return python object
+    */
+  def NotImplemented: PythonObject = PythonObject(PythonObject.Constants.notImplemented)
+
+  /**
+    * Run block of code holding the global interpreter lock.
+    * Python calls made inside the block do not acquire and release the lock one by one.
+    *
+    * @param body block of code
+    * @return result of the block
+    */
+  def withGil[T](body: => T): T = libPython.gil(body)
+
+  /**
+    * Run block of code with the global interpreter lock released, letting other threads call Python meanwhile.
+    * Intended for long running JVM work nested inside withGil block.
+    *
+    * @param body block of code
+    * @return result of the block
+    */
+  def withoutGil[T](body: => T): T = libPython.nogil(body)
+
+  /**
+    * Run block of code keeping python thread state of the current thread between calls made inside it.
+    * Outside of such block every outermost call creates and deletes a python thread state.
+    * Intended for long-lived platform threads calling python repeatedly, the state is deleted when the block exits.
+    * Virtual threads must not use it, python thread state is bound to the carrier thread.
+    *
+    * @param body block of code
+    * @return result of the block
+    */
+  def withAttachedThread[T](body: => T): T =
+    if (libPython.threadAttached)
+      body
+    else {
+      libPython.attachThread()
+      try body
+      finally libPython.detachThread()
+    }
+
+  /**
+    * Run block of code releasing python references created by the current thread inside it on exit.
+    * Objects used after the block must be promoted with the scope passed to the block.
+    *
+    * @param body block of code
+    * @return result of the block
+    */
+  def arena[T](body: PythonScope => T): T = PythonScope(body)
 
   /**
-    * Import python module
+    * Execute python statements in the namespace of __main__ module.
+    * These overloads take precedence over the built-in function of the same name,
+    * use selectDynamic("exec") to call the built-in with code objects or other arguments.
+    *
+    * @param source python source code
+    */
+  def exec(source: String): Unit = exec(source, PythonObject(mainGlobals))
+
+  /**
+    * Execute python statements using the same dictionary for global and local variables.
+    *
+    * @param source  python source code
+    * @param globals dictionary of global variables
+    */
+  def exec(source: String, globals: PythonObject): Unit = exec(source, globals, globals)
+
+  /**
+    * Execute python statements.
+    * Compiled code is cached by source, so repeated execution of the same source skips parsing and compilation.
+    *
+    * @param source  python source code
+    * @param globals dictionary of global variables
+    * @param locals  mapping of local variables
+    */
+  def exec(source: String, globals: PythonObject, locals: PythonObject): Unit =
+    evalCode(compileCached(source, PythonLibrary.pyFileInput), globals, locals)
+
+  /**
+    * Evaluate python expression in the namespace of __main__ module.
+    * These overloads take precedence over the built-in function of the same name,
+    * use selectDynamic("eval") to call the built-in with code objects or other arguments.
+    *
+    * @param source python expression
+    * @return python object
+    */
+  def eval(source: String): PythonObject = eval(source, PythonObject(mainGlobals))
+
+  /**
+    * Evaluate python expression using the same dictionary for global and local variables.
+    *
+    * @param source  python expression
+    * @param globals dictionary of global variables
+    * @return python object
+    */
+  def eval(source: String, globals: PythonObject): PythonObject = eval(source, globals, globals)
+
+  /**
+    * Evaluate python expression.
+    * Compiled code is cached by source, so repeated evaluation of the same source skips parsing and compilation.
+    *
+    * @param source  python expression
+    * @param globals dictionary of global variables
+    * @param locals  mapping of local variables
+    * @return python object
+    */
+  def eval(source: String, globals: PythonObject, locals: PythonObject): PythonObject =
+    PythonObject(evalCode(compileCached(source, PythonLibrary.pyEvalInput), globals, locals))
+
+  private def evalCode(code: PythonReference, globals: PythonObject, locals: PythonObject): PythonReference =
+    libPython.gil {
+      // like python exec() and eval(), make built-ins available to code run with globals lacking them
+      val builtinsKey = PythonObject.internedName("__builtins__")
+      if (!libPython.pySequenceContains(globals.reference, builtinsKey))
+        libPython.pyDictSetItem(globals.reference, builtinsKey, builtins.reference)
+      libPython.pyEvalEvalCode(code, globals.reference, locals.reference)
+    }
+
+  private def compileCached(source: String, start: Int): PythonReference =
+    compiledCode.getOrElseUpdate((source, start), libPython.pyCompileString(source, "<string>", start))
+
+  /**
+    * Import python module.
+    * Imported modules are cached, repeated imports of the same module take no native call.
+    * Modules removed from sys.modules or replaced there stay cached until invalidated or reloaded.
     *
     * @param name module name
     * @return python module
     */
-  def importModule(name: String) = PythonObject(libPython.pyImportImportModule(name))
+  def importModule(name: String): PythonObject = {
+    val cached = modules.get(name)
+    if (cached != null)
+      PythonObject(cached)
+    else {
+      // import without holding any map lock, the import lock taken by python could otherwise deadlock
+      val imported = PythonScope.detached(libPython.pyImportImportModule(name))
+      val existing = modules.putIfAbsent(name, imported)
+      PythonObject(if (existing != null) existing else imported)
+    }
+  }
+
+  /**
+    * Reload python module and replace cached module with the result.
+    *
+    * @param name module name
+    * @return reloaded python module
+    */
+  def reloadModule(name: String): PythonObject = {
+    val reloaded = PythonScope.detached(libPython.pyImportReloadModule(importModule(name).reference))
+    modules.put(name, reloaded)
+    PythonObject(reloaded)
+  }
+
+  /**
+    * Remove python module from the import cache, next import calls python again.
+    *
+    * @param name module name
+    */
+  def invalidateModule(name: String): Unit = modules.remove(name)
+
+  /**
+    * Remove all python modules from the import cache.
+    */
+  def invalidateModules(): Unit = modules.clear()
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019 Maksym Kysylov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.kysylov.python4s
+
+import java.nio.{ByteBuffer, ByteOrder, DoubleBuffer, IntBuffer, LongBuffer}
+
+import com.kenai.jffi.MemoryIO
+import com.kysylov.python4s.Python.libPython
+import jnr.ffi.Memory
+
+/**
+  * Contiguous memory exported by python object through the buffer protocol (bytes, bytearray, array.array,
+  * memoryview, numpy arrays and others).
+  * Exporter is kept alive and its memory is locked until the buffer is closed,
+  * JVM buffers returned by this class must not be used after that.
+  *
+  * @param obj      exporting python object
+  * @param writable whether writable buffer is requested
+  */
+final class PythonBuffer private[python4s](obj: PythonReference, writable: Boolean) extends AutoCloseable {
+
+  import PythonBuffer._
+
+  // native Py_buffer structure, Py_ssize_t fields have pointer size
+  private val addressSize = libPython.runtime.addressSize()
+  private val view = Memory.allocateDirect(libPython.runtime, 9 * addressSize + 8)
+  private var released = false
+
+  libPython.pyObjectGetBuffer(
+    obj,
+    view,
+    PythonLibrary.pyBufCContiguous | PythonLibrary.pyBufFormat | (if (writable) PythonLibrary.pyBufWritable else 0)
+  )
+
+  /**
+    * Buffer size in bytes.
+    *
+    * @return size
+    */
+  def length: Long = view.getAddress(2 * addressSize)
+
+  /**
+    * Size of a single item in bytes.
+    *
+    * @return item size
+    */
+  def itemSize: Long = view.getAddress(3 * addressSize)
+
+  /**
+    * Whether python does not allow writing into the buffer.
+    *
+    * @return true if buffer is read-only
+    */
+  def readOnly: Boolean = view.getInt(4 * addressSize) != 0
+
+  /**
+    * Item format in struct module syntax, "B" (unsigned bytes) if exporter does not provide one.
+    *
+    * @return format string
+    */
+  def format: String = {
+    val pointer = view.getPointer(4 * addressSize + 8)
+    if (pointer == null) "B" else pointer.getString(0)
+  }
+
+  /**
+    * Map buffer memory into JVM without copying.
+    * Byte order is native, the result is read-only if python buffer is read-only.
+    *
+    * @return direct byte buffer
+    */
+  def asByteBuffer: ByteBuffer = {
+    if (released)
+      throw new IllegalStateException("Buffer is closed")
+    if (length > Int.MaxValue)
+      throw new UnsupportedOperationException(s"Buffer of $length bytes does not fit into JVM buffer")
+
+    val buffer = MemoryIO.getInstance().newDirectByteBuffer(view.getAddress(0), length.toInt).order(ByteOrder.nativeOrder())
+    if (readOnly) buffer.asReadOnlyBuffer().order(ByteOrder.nativeOrder()) else buffer
+  }
+
+  /**
+    * Map buffer of doubles into JVM without copying.
+    *
+    * @return direct double buffer
+    */
+  def asDoubleBuffer: DoubleBuffer = {
+    checkFormat(doubleFormats, java.lang.Double.BYTES)
+    asByteBuffer.asDoubleBuffer()
+  }
+
+  /**
+    * Map buffer of 32-bit integers into JVM without copying.
+    *
+    * @return direct int buffer
+    */
+  def asIntBuffer: IntBuffer = {
+    checkFormat(intFormats, java.lang.Integer.BYTES)
+    asByteBuffer.asIntBuffer()
+  }
+
+  /**
+    * Map buffer of 64-bit integers into JVM without copying.
+    *
+    * @return direct long buffer
+    */
+  def asLongBuffer: LongBuffer = {
+    checkFormat(longFormats, java.lang.Long.BYTES)
+    asByteBuffer.asLongBuffer()
+  }
+
+  /**
+    * Release the buffer, letting python modify or free exporter memory.
+    */
+  override def close(): Unit = if (!released) {
+    released = true
+    libPython.pyBufferRelease(view)
+  }
+
+  private def checkFormat(formats: Set[Char], size: Int): Unit = {
+    val itemFormat = format
+    if (itemSize != size || !formats.contains(itemFormat.last) || itemFormat.length > 2 ||
+      (itemFormat.length == 2 && !nativeOrderPrefixes.contains(itemFormat.head)))
+      throw new UnsupportedOperationException(s"Buffer of format '$itemFormat' can not be read as $size-byte items")
+  }
+}
+
+private[python4s] object PythonBuffer {
+  private val doubleFormats = Set('d')
+  private val intFormats = Set('i')
+  private val longFormats = Set('q', 'l')
+  private val nativeOrderPrefixes = Set('@', '=')
+}
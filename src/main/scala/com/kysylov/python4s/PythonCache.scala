@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 Maksym Kysylov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.kysylov.python4s
+
+import java.util
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+  * Thread safe cache of python objects evicting entries not used recently.
+  * Lookups take no lock, eviction uses clock algorithm approximating least recently used order:
+  * entries read since the previous pass of the clock hand are kept once more, unread entries are evicted.
+  * Values are created outside of any scope, evicted values are released by garbage collection.
+  *
+  * @param capacity maximum number of entries
+  */
+private[python4s] class PythonCache[K, V <: AnyRef](capacity: Int) {
+  require(capacity > 0, "Capacity must be positive.")
+
+  private val entries = new ConcurrentHashMap[K, PythonCache.Entry[V]]()
+  // guarded by this
+  private var hand: util.Iterator[util.Map.Entry[K, PythonCache.Entry[V]]] = _
+
+  /**
+    * Get cached value or create and cache a new one.
+    * Value is created without holding any lock, so concurrent callers may create it more than once.
+    *
+    * @param key   key
+    * @param value value factory
+    * @return cached value
+    */
+  def getOrElseUpdate(key: K, value: => V): V = {
+    val cached = entries.get(key)
+    if (cached != null) {
+      // write only when the flag changes, reads of hot entries do not invalidate each other's caches
+      if (!cached.referenced)
+        cached.referenced = true
+      cached.value
+    } else {
+      val created = new PythonCache.Entry(PythonScope.detached(value))
+      val existing = entries.putIfAbsent(key, created)
+      if (existing != null)
+        existing.value
+      else {
+        if (entries.size() > capacity)
+          evict()
+        created.value
+      }
+    }
+  }
+
+  /**
+    * Remove cached value.
+    *
+    * @param key key
+    * @return removed value
+    */
+  def remove(key: K): Option[V] = Option(entries.remove(key)).map(_.value)
+
+  /**
+    * Remove all cached values.
+    */
+  def clear(): Unit = entries.clear()
+
+  private def evict(): Unit = synchronized {
+    var exhausted = false
+    while (!exhausted && entries.size() > capacity) {
+      if (hand == null || !hand.hasNext)
+        hand = entries.entrySet().iterator()
+
+      if (!hand.hasNext)
+        exhausted = true
+      else {
+        val entry = hand.next()
+        if (entry.getValue.referenced)
+          entry.getValue.referenced = false
+        else
+          entries.remove(entry.getKey, entry.getValue)
+      }
+    }
+  }
+}
+
+private[python4s] object PythonCache {
+  private[python4s] final class Entry[V](val value: V) {
+    @volatile var referenced = true
+  }
+}
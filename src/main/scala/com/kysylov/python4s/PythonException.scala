@@ -21,7 +21,9 @@ import com.kysylov.python4s.Python.libPython
 class PythonException private(message: String) extends Exception(message)
 
 private[python4s] object PythonException {
-  private lazy val traceback = Python.importModule("traceback")
+  // imported on first use through the module cache rather than a lazy val, exceptions are converted holding
+  // the global interpreter lock, importing under a lazy val monitor could deadlock with another converting thread
+  private def traceback: PythonObject = Python.importModule("traceback")
 
   /**
     * Retrieve and clear Python error indicator. Convert Python error to JVM exception.
@@ -37,6 +39,14 @@ private[python4s] object PythonException {
       None
   }
 
+  /**
+    * Create exception for python error reported as a message, e.g. by another interpreter.
+    *
+    * @param message message in "[type] value" format
+    * @return JVM exception
+    */
+  def apply(message: String): PythonException = new PythonException(message)
+
   /**
     * Convert python error to JVM exception.
     * Modify stacktrace to include JVM and Python calls.
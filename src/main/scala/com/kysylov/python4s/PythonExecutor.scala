@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 Maksym Kysylov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.kysylov.python4s
+
+import java.util.concurrent.locks.LockSupport
+import java.util.concurrent.{ConcurrentLinkedQueue, RejectedExecutionException}
+
+import com.kysylov.python4s.Python.libPython
+
+import scala.concurrent.{ExecutionContext, Future, Promise}
+import scala.util.control.NonFatal
+
+/**
+  * Executor running python code on dedicated interpreter threads.
+  * Tasks submitted from any thread are queued and run in batches, one global interpreter lock acquisition per batch.
+  * Callers, including virtual threads, only park while waiting for the result and never block inside native code.
+  *
+  * @param batchSize maximum number of tasks run per global interpreter lock acquisition
+  * @param threads   number of interpreter threads
+  */
+class PythonExecutor(batchSize: Int = PythonExecutor.defaultBatchSize,
+                     threads: Int = 1) extends ExecutionContext with AutoCloseable {
+  require(batchSize > 0, "Batch size must be positive.")
+  require(threads > 0, "Number of threads must be positive.")
+
+  private val queue = new ConcurrentLinkedQueue[Runnable]()
+  private val idleWorkers = new ConcurrentLinkedQueue[Thread]()
+  @volatile private var running = true
+
+  private val workers = (1 to threads).map { index =>
+    val worker = new Thread(() => loop(), s"python4s-executor-$index")
+    worker.setDaemon(true)
+    worker.start()
+    worker
+  }
+
+  /**
+    * Run task on the interpreter thread.
+    *
+    * @param task task
+    * @return future result of the task
+    */
+  def submit[T](task: => T): Future[T] = {
+    val promise = Promise[T]()
+    execute { () =>
+      try promise.success(task)
+      catch {
+        case error: Throwable =>
+          // complete the future for any error, fatal ones are rethrown to the worker afterwards
+          promise.failure(error)
+          if (!NonFatal(error))
+            throw error
+      }
+    }
+    promise.future
+  }
+
+  override def execute(runnable: Runnable): Unit = {
+    if (!running)
+      throw new RejectedExecutionException("Executor is closed.")
+    queue.add(runnable)
+    // workers may have drained the queue and exited if the executor was closed meanwhile
+    if (!running && queue.remove(runnable))
+      throw new RejectedExecutionException("Executor is closed.")
+
+    // wake a single idle worker, busy workers pick the task up with their next batch
+    val worker = idleWorkers.poll()
+    if (worker != null)
+      LockSupport.unpark(worker)
+  }
+
+  override def reportFailure(cause: Throwable): Unit = cause.printStackTrace()
+
+  /**
+    * Stop accepting tasks, run the queued ones and stop the interpreter thread.
+    */
+  override def close(): Unit = {
+    running = false
+    workers.foreach(LockSupport.unpark)
+    workers.foreach(_.join())
+  }
+
+  private def loop(): Unit = {
+    libPython.attachThread()
+    try {
+      val worker = Thread.currentThread()
+      while (running || !queue.isEmpty) {
+        if (queue.isEmpty) {
+          // register before checking the queue again, so a task added meanwhile either is seen or unparks the worker
+          idleWorkers.add(worker)
+          if (running && queue.isEmpty)
+            LockSupport.park(this)
+          idleWorkers.remove(worker)
+        } else
+          libPython.gil(runBatch())
+      }
+    } finally libPython.detachThread()
+  }
+
+  private def runBatch(): Unit = {
+    var count = 0
+    var task = queue.poll()
+    while (task != null) {
+      try task.run()
+      catch {
+        // the virtual machine is not usable any more, let the worker die
+        case error: VirtualMachineError => throw error
+        // keep the worker alive for other errors, queued tasks would never run otherwise
+        case error: Throwable =>
+          if (error.isInstanceOf[InterruptedException])
+            Thread.interrupted()
+          reportFailure(error)
+      }
+      count += 1
+      task = if (count < batchSize) queue.poll() else null
+    }
+  }
+}
+
+object PythonExecutor {
+  val defaultBatchSize = 64
+
+  /**
+    * Shared executor backing asynchronous python object calls.
+    * Number of threads is configured by python4s.executor.threads system property.
+    */
+  lazy val default: PythonExecutor = new PythonExecutor(
+    threads = sys.props.get("python4s.executor.threads").map(_.toInt)
+      .getOrElse(math.min(4, Runtime.getRuntime.availableProcessors))
+  )
+}
@@ -16,26 +16,144 @@
 
 package com.kysylov.python4s
 
-import jnr.ffi.Pointer
+import java.lang.ref.Reference
+
 import jnr.ffi.byref.PointerByReference
+import jnr.ffi.{Memory, Pointer, Runtime}
 
 private[python4s] class PythonLibrary(val self: LibPython) {
-  def pyRunSimpleString(command: String): Boolean =
-    self.PyRun_SimpleString(command) == 0
+  val runtime: Runtime = Runtime.getRuntime(self)
+  private val threadState = ThreadLocal.withInitial[PythonLibrary.ThreadState](() => new PythonLibrary.ThreadState)
+  // set once by pyInitializeEx before any other thread can take the lock
+  @volatile private var dictType = 0L
+  @volatile private var vectorcall = false
+  private val argumentVector =
+    ThreadLocal.withInitial[PythonLibrary.ArgumentVector](() => new PythonLibrary.ArgumentVector(runtime))
+
+  /**
+    * Run block of code holding the global interpreter lock.
+    * The lock is acquired only by the outermost call on a thread, nested calls run the block directly.
+    * Specialized for primitive results so that scalar conversions do not box.
+    * Threads that are not attached get a temporary python thread state released together with the lock,
+    * so a virtual thread must not block inside the block, it could resume on another carrier thread.
+    *
+    * @param body block of code
+    * @return result of the block
+    */
+  def gil[@specialized(Int, Long, Double, Boolean) T](body: => T): T = {
+    val state = threadState.get()
+    if (state.holdsGil)
+      body
+    else {
+      acquireGil(state)
+      try body
+      finally releaseGil(state)
+    }
+  }
+
+  /**
+    * Run block of code with the global interpreter lock temporarily released.
+    * Does nothing special if the current thread does not hold the lock.
+    *
+    * @param body block of code
+    * @return result of the block
+    */
+  def nogil[T](body: => T): T = {
+    val state = threadState.get()
+    if (!state.holdsGil)
+      body
+    else {
+      releaseGil(state)
+      try body
+      finally acquireGil(state)
+    }
+  }
 
-  def pyRunString(str: String, start: Int, globals: PythonReference, locals: PythonReference): PythonReference =
-    PythonReference.receive(self.PyRun_String(str, start, globals.pointer, locals.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
+  /**
+    * Keep python thread state of the current thread between lock acquisitions until the thread is detached.
+    * Intended for long-lived platform threads calling python repeatedly, such as executor workers.
+    */
+  def attachThread(): Unit = threadState.get().attached = true
+
+  /**
+    * Check whether python thread state of the current thread is kept between lock acquisitions.
+    *
+    * @return true if the thread is attached
+    */
+  def threadAttached: Boolean = threadState.get().attached
+
+  /**
+    * Delete python thread state kept for the current thread.
+    * Must be called by an attached thread before it exits, outside of any block holding the lock.
+    */
+  def detachThread(): Unit = {
+    val state = threadState.get()
+    if (state.holdsGil)
+      throw new IllegalStateException("Thread can not be detached holding the global interpreter lock.")
+    if (state.pythonThreadState != null) {
+      self.PyEval_RestoreThread(state.pythonThreadState)
+      self.PyThreadState_Clear(state.pythonThreadState)
+      self.PyThreadState_DeleteCurrent()
+      state.pythonThreadState = null
+    }
+    state.attached = false
+  }
+
+  private def acquireGil(state: PythonLibrary.ThreadState): Unit = {
+    if (state.pythonThreadState != null)
+      self.PyEval_RestoreThread(state.pythonThreadState)
+    else {
+      state.gilState = self.PyGILState_Ensure()
+      // thread state of an attached thread is kept and reused by subsequent calls
+      if (state.attached)
+        state.pythonThreadState = self.PyGILState_GetThisThreadState()
     }
+    state.holdsGil = true
+  }
+
+  private def releaseGil(state: PythonLibrary.ThreadState): Unit = {
+    state.holdsGil = false
+    if (state.pythonThreadState != null)
+      self.PyEval_SaveThread()
+    else
+      self.PyGILState_Release(state.gilState)
+  }
+
+  /**
+    * Receive new reference returned by python, NULL result means that python raised an exception.
+    *
+    * @param pointer native pointer
+    * @return non-null reference
+    */
+  private def receive(pointer: Pointer): PythonReference =
+    if (pointer != null)
+      PythonReference(pointer)
+    else
+      throw PythonException.fetch().get
+
+  def pyRunSimpleString(command: String): Boolean = gil {
+    self.PyRun_SimpleString(command) == 0
+  }
+
+  def pyRunString(str: String, start: Int, globals: PythonReference, locals: PythonReference): PythonReference = gil {
+    receive(self.PyRun_String(str, start, globals.pointer, locals.pointer))
+  }
+
+  def pyCompileString(str: String, filename: String, start: Int): PythonReference = gil {
+    receive(self.Py_CompileString(str, filename, start))
+  }
+
+  def pyEvalEvalCode(code: PythonReference, globals: PythonReference, locals: PythonReference): PythonReference = gil {
+    receive(self.PyEval_EvalCode(code.pointer, globals.pointer, locals.pointer))
+  }
 
-  def pyIncRef(o: Pointer): Unit = self.Py_IncRef(o)
+  def pyIncRef(o: Pointer): Unit = gil(self.Py_IncRef(o))
 
-  def pyDecRef(o: Pointer): Unit = self.Py_DecRef(o)
+  def pyDecRef(o: Pointer): Unit = gil(self.Py_DecRef(o))
 
-  def pyErrOccurred: Boolean = Option(self.PyErr_Occurred()).isDefined
+  def pyErrOccurred: Boolean = gil(self.PyErr_Occurred() != null)
 
-  def pyErrFetch(): Option[(PythonReference, PythonReference, Option[PythonReference])] = {
+  def pyErrFetch(): Option[(PythonReference, PythonReference, Option[PythonReference])] = gil {
     val typeReference = new PointerByReference()
     val valueReference = new PointerByReference()
     val traceReference = new PointerByReference()
@@ -50,389 +168,446 @@ private[python4s] class PythonLibrary(val self: LibPython) {
     (typeOption zip valueOption).map { case (type1, value) => (type1, value, traceOption) }
   }
 
-  def pyImportImportModule(name: String): PythonReference =
-    PythonReference.receive(self.PyImport_ImportModule(name)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyImportImportModule(name: String): PythonReference = gil {
+    receive(self.PyImport_ImportModule(name))
+  }
 
-  def pyBuildValue(format: String, args: AnyRef*): PythonReference =
-    PythonReference.receive(self.Py_BuildValue(format, args: _*)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyImportReloadModule(module: PythonReference): PythonReference = gil {
+    receive(self.PyImport_ReloadModule(module.pointer))
+  }
 
-  def pyEvalGetBuiltins: PythonReference =
+  def pyBuildValue(format: String, args: AnyRef*): PythonReference = gil {
+    receive(self.Py_BuildValue(format, args: _*))
+  }
+
+  def pyEvalGetBuiltins: PythonReference = gil {
     PythonReference.borrow(self.PyEval_GetBuiltins()).get
+  }
 
-  def pyObjectGetAttrString(obj: PythonReference, attrName: String): PythonReference =
-    PythonReference.receive(self.PyObject_GetAttrString(obj.pointer, attrName)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyObjectGetAttr(obj: PythonReference, attrName: PythonReference): PythonReference = gil {
+    receive(self.PyObject_GetAttr(obj.pointer, attrName.pointer))
+  }
 
-  def pyObjectSetAttrString(obj: PythonReference, attrName: String, value: PythonReference): Unit = {
-    if (self.PyObject_SetAttrString(obj.pointer, attrName, value.pointer) == -1)
+  def pyObjectSetAttr(obj: PythonReference, attrName: PythonReference, value: PythonReference): Unit = gil {
+    if (self.PyObject_SetAttr(obj.pointer, attrName.pointer, value.pointer) == -1)
       PythonException.fetch().foreach(throw _)
   }
 
-  def pyObjectRichCompare(obj1: PythonReference, obj2: PythonReference, operator: Int): Boolean = {
+  def pyObjectRichCompare(obj1: PythonReference, obj2: PythonReference, operator: Int): Boolean = gil {
     val result = self.PyObject_RichCompareBool(obj1.pointer, obj2.pointer, operator)
     if (result == -1)
       PythonException.fetch().foreach(throw _)
     result > 0
   }
 
-  def pyObjectStr(obj: PythonReference): PythonReference =
-    PythonReference.receive(self.PyObject_Str(obj.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyObjectStr(obj: PythonReference): PythonReference = gil {
+    receive(self.PyObject_Str(obj.pointer))
+  }
 
-  def pyCallableCheck(obj: PythonReference): Boolean =
+  def pyCallableCheck(obj: PythonReference): Boolean = gil {
     self.PyCallable_Check(obj.pointer) > 0
+  }
 
-  def pyObjectCall(callable: PythonReference, args: PythonReference, kwargs: PythonReference): PythonReference =
-    PythonReference.receive(self.PyObject_Call(callable.pointer, args.pointer, kwargs.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
-
-  def pyObjectCallFunctionObjArgs(callable: PythonReference, args: PythonReference*): PythonReference =
-    PythonReference.receive(self.PyObject_CallFunctionObjArgs(callable.pointer, args.map(_.pointer) :+ null: _*)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
-
-  def pyObjectCallMethodObjArgs(callable: PythonReference, name: PythonReference, args: PythonReference*): PythonReference =
-    PythonReference.receive(self.PyObject_CallMethodObjArgs(callable.pointer, name.pointer, args.map(_.pointer) :+ null: _*)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
+  def pyObjectVectorcall(callable: PythonReference,
+                         args: Seq[PythonReference],
+                         kwargs: Seq[PythonReference] = Seq(),
+                         kwnames: Option[PythonReference] = None): PythonReference =
+    if (!vectorcall)
+      gil(receive(call(callable.pointer, args, kwargs, kwnames)))
+    else {
+      // prepare arguments before taking the lock
+      val vector = argumentVector.get().fill(None, args, kwargs)
+      // arguments are only referenced by the native vector during the call, keep them reachable
+      try gil {
+        receive(self.PyObject_Vectorcall(callable.pointer, vector, args.length, kwnames.map(_.pointer).orNull))
+      } finally {
+        Reference.reachabilityFence(args)
+        Reference.reachabilityFence(kwargs)
+      }
+    }
+
+  def pyObjectVectorcallMethod(obj: PythonReference,
+                               name: PythonReference,
+                               args: Seq[PythonReference],
+                               kwargs: Seq[PythonReference] = Seq(),
+                               kwnames: Option[PythonReference] = None): PythonReference =
+    if (!vectorcall)
+      gil {
+        val method = self.PyObject_GetAttr(obj.pointer, name.pointer)
+        if (method == null)
+          throw PythonException.fetch().get
+        try receive(call(method, args, kwargs, kwnames))
+        finally self.Py_DecRef(method)
+      }
+    else {
+      // prepare arguments before taking the lock
+      val vector = argumentVector.get().fill(Some(obj), args, kwargs)
+      // arguments are only referenced by the native vector during the call, keep them reachable
+      try gil {
+        receive(self.PyObject_VectorcallMethod(name.pointer, vector, args.length + 1, kwnames.map(_.pointer).orNull))
+      } finally {
+        Reference.reachabilityFence(obj)
+        Reference.reachabilityFence(args)
+        Reference.reachabilityFence(kwargs)
+      }
+    }
+
+  /**
+    * Call through argument tuple and keyword dict, used where PyObject_Vectorcall is not exported (before 3.11).
+    * Must be called holding the lock.
+    *
+    * @param callable python callable
+    * @param args     positional arguments
+    * @param kwargs   values of keyword arguments
+    * @param kwnames  tuple of keyword names
+    * @return result of the call, NULL if python raised an exception
+    */
+  private def call(callable: Pointer,
+                   args: Seq[PythonReference],
+                   kwargs: Seq[PythonReference],
+                   kwnames: Option[PythonReference]): Pointer = {
+    val tuple = self.PyTuple_New(args.length)
+    if (tuple == null)
+      return null
+    args.zipWithIndex.foreach { case (arg, index) =>
+      // tuple steals the reference
+      self.Py_IncRef(arg.pointer)
+      self.PyTuple_SetItem(tuple, index, arg.pointer)
+    }
+
+    val dictionary = kwnames.map { names =>
+      val dictionary = self.PyDict_New()
+      kwargs.zipWithIndex.foreach { case (arg, index) =>
+        val name = self.PySequence_GetItem(names.pointer, index)
+        self.PyDict_SetItem(dictionary, name, arg.pointer)
+        self.Py_DecRef(name)
+      }
+      dictionary
+    }
+
+    try self.PyObject_Call(callable, tuple, dictionary.orNull)
+    finally {
+      self.Py_DecRef(tuple)
+      dictionary.foreach(self.Py_DecRef)
     }
+  }
 
-  def pyObjectHash(obj: PythonReference): Int = {
+  def pyObjectHash(obj: PythonReference): Int = gil {
     val result = self.PyObject_Hash(obj.pointer).toInt
     if (result == -1)
       PythonException.fetch().foreach(throw _)
     result
   }
 
-  def pyObjectIsTrue(obj: PythonReference): Boolean = {
+  def pyObjectIsTrue(obj: PythonReference): Boolean = gil {
     val result = self.PyObject_IsTrue(obj.pointer)
     if (result == -1)
       PythonException.fetch().foreach(throw _)
     result > 0
   }
 
-  def pyObjectGetItem(obj: PythonReference, key: PythonReference): PythonReference =
-    PythonReference.receive(self.PyObject_GetItem(obj.pointer, key.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
+  def pyObjectGetItem(obj: PythonReference, key: PythonReference): PythonReference = gil {
+    receive(self.PyObject_GetItem(obj.pointer, key.pointer))
+  }
+
+  def pyObjectGetItem(obj: PythonReference, key: PythonReference, missing: PythonReference): Option[PythonReference] =
+    gil {
+      val result = self.PyObject_GetItem(obj.pointer, key.pointer)
+      if (result != null)
+        Some(PythonReference(result))
+      else if (self.PyErr_ExceptionMatches(missing.pointer) != 0) {
+        self.PyErr_Clear()
+        None
+      } else
+        throw PythonException.fetch().get
     }
 
-  def pyObjectSetItem(obj: PythonReference, key: PythonReference, value: PythonReference): Unit = {
+  def pyObjectSetItem(obj: PythonReference, key: PythonReference, value: PythonReference): Unit = gil {
     if (self.PyObject_SetItem(obj.pointer, key.pointer, value.pointer) == -1)
       PythonException.fetch().foreach(throw _)
   }
 
-  def pyObjectGetIter(obj: PythonReference): PythonReference =
-    PythonReference.receive(self.PyObject_GetIter(obj.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyObjectGetIter(obj: PythonReference): PythonReference = gil {
+    receive(self.PyObject_GetIter(obj.pointer))
+  }
 
-  def pyNumberAdd(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_Add(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyObjectSize(obj: PythonReference): Long = gil {
+    val result = self.PyObject_Size(obj.pointer)
+    if (result == -1L)
+      throw PythonException.fetch().get
+    result
+  }
 
-  def pyNumberSubtract(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_Subtract(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyObjectGetBuffer(obj: PythonReference, view: Pointer, flags: Int): Unit = gil {
+    if (self.PyObject_GetBuffer(obj.pointer, view, flags) == -1)
+      throw PythonException.fetch().get
+  }
 
-  def pyNumberMultiply(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_Multiply(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyBufferRelease(view: Pointer): Unit = gil(self.PyBuffer_Release(view))
 
-  def pyNumberMatrixMultiply(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_MatrixMultiply(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberAdd(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_Add(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberFloorDivide(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_FloorDivide(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberSubtract(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_Subtract(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberTrueDivide(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_TrueDivide(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberMultiply(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_Multiply(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberRemainder(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_Remainder(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberMatrixMultiply(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_MatrixMultiply(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberPower(obj1: PythonReference, obj2: PythonReference, obj3: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_Power(obj1.pointer, obj2.pointer, obj3.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberFloorDivide(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_FloorDivide(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberNegative(obj: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_Negative(obj.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberTrueDivide(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_TrueDivide(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberPositive(obj: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_Positive(obj.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberRemainder(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_Remainder(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberInvert(obj: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_Invert(obj.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberPower(obj1: PythonReference, obj2: PythonReference, obj3: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_Power(obj1.pointer, obj2.pointer, obj3.pointer))
+  }
 
-  def pyNumberLshift(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_Lshift(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberNegative(obj: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_Negative(obj.pointer))
+  }
 
-  def pyNumberRshift(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_Rshift(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberPositive(obj: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_Positive(obj.pointer))
+  }
 
-  def pyNumberAnd(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_And(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberInvert(obj: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_Invert(obj.pointer))
+  }
 
-  def pyNumberXor(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_Xor(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberLshift(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_Lshift(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberOr(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_Or(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberRshift(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_Rshift(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberInPlaceAdd(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_InPlaceAdd(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberAnd(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_And(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberInPlaceSubtract(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_InPlaceSubtract(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberXor(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_Xor(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberInPlaceMultiply(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_InPlaceMultiply(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberOr(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_Or(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberInPlaceMatrixMultiply(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_InPlaceMatrixMultiply(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberInPlaceAdd(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_InPlaceAdd(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberInPlaceFloorDivide(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_InPlaceFloorDivide(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberInPlaceSubtract(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_InPlaceSubtract(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberInPlaceTrueDivide(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_InPlaceTrueDivide(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberInPlaceMultiply(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_InPlaceMultiply(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberInPlaceRemainder(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_InPlaceRemainder(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberInPlaceMatrixMultiply(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_InPlaceMatrixMultiply(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberInPlacePower(obj1: PythonReference, obj2: PythonReference, obj3: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_InPlacePower(obj1.pointer, obj2.pointer, obj3.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberInPlaceFloorDivide(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_InPlaceFloorDivide(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberInPlaceLshift(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_InPlaceLshift(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberInPlaceTrueDivide(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_InPlaceTrueDivide(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberInPlaceRshift(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_InPlaceRshift(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberInPlaceRemainder(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_InPlaceRemainder(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberInPlaceAnd(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_InPlaceAnd(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberInPlacePower(obj1: PythonReference, obj2: PythonReference, obj3: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_InPlacePower(obj1.pointer, obj2.pointer, obj3.pointer))
+  }
 
-  def pyNumberInPlaceXor(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_InPlaceXor(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberInPlaceLshift(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_InPlaceLshift(obj1.pointer, obj2.pointer))
+  }
 
-  def pyNumberInPlaceOr(obj1: PythonReference, obj2: PythonReference): PythonReference =
-    PythonReference.receive(self.PyNumber_InPlaceOr(obj1.pointer, obj2.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberInPlaceRshift(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_InPlaceRshift(obj1.pointer, obj2.pointer))
+  }
 
-  def pySequenceGetItem(obj: PythonReference, index: Long): PythonReference =
-    PythonReference.receive(self.PySequence_GetItem(obj.pointer, index)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberInPlaceAnd(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_InPlaceAnd(obj1.pointer, obj2.pointer))
+  }
 
-  def pyMappingItems(obj: PythonReference): PythonReference =
-    PythonReference.receive(self.PyMapping_Items(obj.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyNumberInPlaceXor(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_InPlaceXor(obj1.pointer, obj2.pointer))
+  }
+
+  def pyNumberInPlaceOr(obj1: PythonReference, obj2: PythonReference): PythonReference = gil {
+    receive(self.PyNumber_InPlaceOr(obj1.pointer, obj2.pointer))
+  }
+
+  def pySequenceGetItem(obj: PythonReference, index: Long): PythonReference = gil {
+    receive(self.PySequence_GetItem(obj.pointer, index))
+  }
+
+  def pySequenceContains(obj: PythonReference, value: PythonReference): Boolean = gil {
+    val result = self.PySequence_Contains(obj.pointer, value.pointer)
+    if (result == -1)
+      throw PythonException.fetch().get
+    result > 0
+  }
+
+  def pyMappingItems(obj: PythonReference): PythonReference = gil {
+    receive(self.PyMapping_Items(obj.pointer))
+  }
 
-  def pyIterNext(obj: PythonReference): Option[PythonReference] = {
+  def pyIterNext(obj: PythonReference): Option[PythonReference] = gil {
     val result = PythonReference.receive(self.PyIter_Next(obj.pointer))
     if (result.isEmpty)
       PythonException.fetch().foreach(throw _)
     result
   }
 
-  def pyLongFromLong(value: Long): PythonReference =
-    PythonReference.receive(self.PyLong_FromLong(value)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyLongFromLong(value: Long): PythonReference = gil {
+    receive(self.PyLong_FromLong(value))
+  }
 
-  def pyLongAsLongLong(obj: PythonReference): Long = {
+  def pyLongAsLongLong(obj: PythonReference): Long = gil {
     val result = self.PyLong_AsLongLong(obj.pointer)
     if (result == -1L)
       PythonException.fetch().foreach(throw _)
     result
   }
 
-  def pyBoolFromLong(value: Long): PythonReference =
-    PythonReference.receive(self.PyBool_FromLong(value)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyBoolFromLong(value: Long): PythonReference = gil {
+    receive(self.PyBool_FromLong(value))
+  }
 
-  def pyFloatFromDouble(value: Double): PythonReference =
-    PythonReference.receive(self.PyFloat_FromDouble(value)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyFloatFromDouble(value: Double): PythonReference = gil {
+    receive(self.PyFloat_FromDouble(value))
+  }
 
-  def pyFloatAsDouble(obj: PythonReference): Double = {
+  def pyFloatAsDouble(obj: PythonReference): Double = gil {
     val result = self.PyFloat_AsDouble(obj.pointer)
     if (result == -1.0)
       PythonException.fetch().foreach(throw _)
     result
   }
 
-  def pyUnicodeFromString(string: String): PythonReference =
-    PythonReference.receive(self.PyUnicode_FromString(string)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyBytesFromStringAndSize(bytes: Array[Byte]): PythonReference = gil {
+    receive(self.PyBytes_FromStringAndSize(bytes, bytes.length))
+  }
 
-  def pyUnicodeAsUTF8(obj: PythonReference): String =
-    Option(self.PyUnicode_AsUTF8(obj.pointer)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyBytesAsString(obj: PythonReference): Array[Byte] = gil {
+    val size = self.PyBytes_Size(obj.pointer)
+    if (size == -1L)
+      throw PythonException.fetch().get
+    val bytes = new Array[Byte](size.toInt)
+    self.PyBytes_AsString(obj.pointer).get(0, bytes, 0, bytes.length)
+    bytes
+  }
 
-  def pyTupleNew(length: Long): PythonReference =
-    PythonReference.receive(self.PyTuple_New(length)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyUnicodeFromString(string: String): PythonReference = gil {
+    receive(self.PyUnicode_FromString(string))
+  }
+
+  def pyUnicodeInternFromString(string: String): PythonReference = gil {
+    receive(self.PyUnicode_InternFromString(string))
+  }
+
+  def pyUnicodeAsUTF8(obj: PythonReference): String = gil {
+    val result = self.PyUnicode_AsUTF8(obj.pointer)
+    if (result == null)
+      throw PythonException.fetch().get
+    result
+  }
 
-  def pyTupleSetItem(tuple: PythonReference, position: Long, item: PythonReference): Unit = {
+  def pyTupleNew(length: Long): PythonReference = gil {
+    receive(self.PyTuple_New(length))
+  }
+
+  def pyTupleSetItem(tuple: PythonReference, position: Long, item: PythonReference): Unit = gil {
     self.Py_IncRef(item.pointer)
     if (self.PyTuple_SetItem(tuple.pointer, position, item.pointer) == -1)
       PythonException.fetch().foreach(throw _)
   }
 
-  def pyListNew(length: Long): PythonReference =
-    PythonReference.receive(self.PyList_New(length)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyListNew(length: Long): PythonReference = gil {
+    receive(self.PyList_New(length))
+  }
 
-  def pyListSetItem(list: PythonReference, index: Long, item: PythonReference): Unit = {
+  def pyListSetItem(list: PythonReference, index: Long, item: PythonReference): Unit = gil {
     if (self.PyList_SetItem(list.pointer, index, item.pointer) == -1)
       PythonException.fetch().foreach(throw _)
   }
 
-  def pyListAppend(list: PythonReference, item: PythonReference): Unit = {
+  def pyListAppend(list: PythonReference, item: PythonReference): Unit = gil {
     if (self.PyList_Append(list.pointer, item.pointer) == -1)
       PythonException.fetch().foreach(throw _)
   }
 
-  def pyDictNew(): PythonReference =
-    PythonReference.receive(self.PyDict_New()) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pyDictNew(): PythonReference = gil {
+    receive(self.PyDict_New())
+  }
 
-  def pyDictSetItem(dictionary: PythonReference, key: PythonReference, value: PythonReference): Unit = {
+  def pyDictSetItem(dictionary: PythonReference, key: PythonReference, value: PythonReference): Unit = gil {
     if (self.PyDict_SetItem(dictionary.pointer, key.pointer, value.pointer) == -1)
       PythonException.fetch().foreach(throw _)
   }
 
-  def pySetNew(iterable: Option[PythonReference]): PythonReference =
-    PythonReference.receive(self.PySet_New(iterable.map(_.pointer).orNull)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
+  /**
+    * Check whether object is exactly a dict (not a subclass) without a native call,
+    * by comparing type pointer stored in the object header with the type of dict.
+    *
+    * @param obj python object
+    * @return true if object is a dict
+    */
+  def pyDictCheckExact(obj: PythonReference): Boolean = obj.pointer.getAddress(runtime.addressSize()) == dictType
+
+  def pyDictNext(dictionary: PythonReference, cursor: PythonLibrary.DictCursor): Option[(PythonReference, PythonReference)] = gil {
+    if (self.PyDict_Next(dictionary.pointer, cursor.position, cursor.key, cursor.value) == 0)
+      None
+    else {
+      // take both borrowed references before wrapping, wrapping may release other objects
+      val key = cursor.key.getPointer(0)
+      val value = cursor.value.getPointer(0)
+      self.Py_IncRef(key)
+      self.Py_IncRef(value)
+      Some(PythonReference(key) -> PythonReference(value))
     }
+  }
 
-  def pySetAdd(set: PythonReference, key: PythonReference): Unit = {
+  def pySetNew(iterable: Option[PythonReference]): PythonReference = gil {
+    receive(self.PySet_New(iterable.map(_.pointer).orNull))
+  }
+
+  def pySetAdd(set: PythonReference, key: PythonReference): Unit = gil {
     if (self.PySet_Add(set.pointer, key.pointer) == -1)
       PythonException.fetch().foreach(throw _)
   }
 
-  def pySliceNew(start: Option[PythonReference], stop: Option[PythonReference], step: Option[PythonReference]): PythonReference =
-    PythonReference.receive(self.PySlice_New(start.map(_.pointer).orNull, stop.map(_.pointer).orNull, step.map(_.pointer).orNull)) match {
-      case Some(result) => result
-      case None => throw PythonException.fetch().get
-    }
+  def pySliceNew(start: Option[PythonReference], stop: Option[PythonReference], step: Option[PythonReference]): PythonReference = gil {
+    receive(self.PySlice_New(start.map(_.pointer).orNull, stop.map(_.pointer).orNull, step.map(_.pointer).orNull))
+  }
+
+  def pyMemoryViewFromMemory(memory: Pointer, size: Long, flags: Int): PythonReference = gil {
+    receive(self.PyMemoryView_FromMemory(memory, size, flags))
+  }
 
   def pySetProgramName(name: String): Unit = {
     val decodedName = self.Py_DecodeLocale(name, null)
@@ -442,10 +617,79 @@ private[python4s] class PythonLibrary(val self: LibPython) {
   def pyInitializeEx(initializeSignals: Boolean): Unit = {
     self.Py_InitializeEx(if (initializeSignals) 1 else 0)
     self.PyEval_InitThreads()
+
+    // PyObject_Vectorcall is an inline function before python 3.11, calls fall back to argument tuples there
+    val Array(major, minor) = self.Py_GetVersion().takeWhile(_ != ' ').split('.').take(2).map(_.toInt)
+    vectorcall = major > 3 || major == 3 && minor >= 11
+
+    // type objects are static, pointer stays valid after the dict is released
+    val dictionary = self.PyDict_New()
+    dictType = dictionary.getAddress(runtime.addressSize())
+    self.Py_DecRef(dictionary)
+
+    // release global interpreter lock acquired by initialization
+    self.PyEval_SaveThread()
   }
 }
 
 private[python4s] object PythonLibrary {
+  private[python4s] final class ThreadState {
+    var holdsGil = false
+    var attached = false
+    var gilState = 0
+    var pythonThreadState: Pointer = _
+  }
+
+  /**
+    * Off-heap array of object pointers passed to vectorcall, reused by all calls made on one thread.
+    * Contents are only valid until the next call on the same thread.
+    *
+    * @param runtime native runtime
+    */
+  private[python4s] final class ArgumentVector(runtime: Runtime) {
+    private val addressSize = runtime.addressSize()
+    private var capacity = 0
+    private var memory: Pointer = _
+
+    def fill(receiver: Option[PythonReference], args: Seq[PythonReference], kwargs: Seq[PythonReference]): Pointer = {
+      val length = receiver.size + args.length + kwargs.length
+      if (length > capacity) {
+        capacity = math.max(length, math.max(2 * capacity, 8))
+        memory = Memory.allocateDirect(runtime, capacity * addressSize)
+      }
+
+      var index = 0
+      receiver.foreach { obj =>
+        memory.putPointer(0, obj.pointer)
+        index += 1
+      }
+      args.foreach { arg =>
+        memory.putPointer(index.toLong * addressSize, arg.pointer)
+        index += 1
+      }
+      kwargs.foreach { arg =>
+        memory.putPointer(index.toLong * addressSize, arg.pointer)
+        index += 1
+      }
+      memory
+    }
+  }
+
+  /**
+    * Off-heap position and output slots of dict iteration.
+    *
+    * @param runtime native runtime
+    */
+  private[python4s] final class DictCursor(runtime: Runtime) {
+    private val memory = Memory.allocateDirect(runtime, 3 * runtime.addressSize())
+
+    val position: Pointer = memory.slice(0)
+    val key: Pointer = memory.slice(runtime.addressSize())
+    val value: Pointer = memory.slice(2L * runtime.addressSize())
+
+    position.putAddress(0, 0L)
+  }
+
   val pyLT = 0
   val pyLE = 1
   val pyEQ = 2
@@ -453,6 +697,13 @@ private[python4s] object PythonLibrary {
   val pyGT = 4
   val pyGE = 5
 
+  val pyBufWritable = 0x1
+  val pyBufFormat = 0x4
+  val pyBufCContiguous = 0x38
+
+  val pyBufRead = 0x100
+  val pyBufWrite = 0x200
+
   val pySingleInput = 256
   val pyFileInput = 257
   val pyEvalInput = 258
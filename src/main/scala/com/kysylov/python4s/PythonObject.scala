@@ -16,27 +16,69 @@
 
 package com.kysylov.python4s
 
+import java.lang.ref.Reference
+import java.nio.ByteBuffer
+
+import com.kenai.jffi.MemoryIO
 import com.kysylov.python4s.Python.libPython
+import jnr.ffi.{Memory, Pointer}
 
 import scala.collection.mutable
+import scala.concurrent.Future
 import scala.language.{dynamics, implicitConversions}
 
 class PythonObject(private[python4s] var reference: PythonReference) extends Dynamic {
 
   import PythonObject._
 
+  // references for which the callable check was done, in-place operators replace the reference
+  private var callableReference: PythonReference = _
+  private var notCallableReference: PythonReference = _
+
   /**
     * Get item or call as a function.
     * Call as a function if more than one argument is provided or object is callable, otherwise get an item.
+    * Callable check is done once per wrapped reference.
     *
     * @param args arguments
     * @return python object
     */
   def apply(args: PythonObject*): PythonObject = args match {
-    case Seq(key: PythonObject) if !libPython.pyCallableCheck(reference) =>
-      PythonObject(libPython.pyObjectGetItem(reference, key.reference))
+    case Seq(key: PythonObject) if !isCallable =>
+      getItem(key)
     case _ =>
-      PythonObject(libPython.pyObjectCallFunctionObjArgs(reference, args.map(_.reference): _*))
+      callFunction(args: _*)
+  }
+
+  /**
+    * Call as a function without checking whether object is callable.
+    *
+    * @param args arguments
+    * @return python object
+    */
+  def callFunction(args: PythonObject*): PythonObject =
+    PythonObject(libPython.pyObjectVectorcall(reference, args.map(_.reference)))
+
+  /**
+    * Get item without checking whether object is callable.
+    *
+    * @param key item key
+    * @return python object
+    */
+  def getItem(key: PythonObject): PythonObject =
+    PythonObject(libPython.pyObjectGetItem(reference, key.reference))
+
+  private def isCallable: Boolean = {
+    val current = reference
+    if (current eq callableReference)
+      true
+    else if (current eq notCallableReference)
+      false
+    else {
+      val result = libPython.pyCallableCheck(current)
+      if (result) callableReference = current else notCallableReference = current
+      result
+    }
   }
 
   /**
@@ -48,13 +90,24 @@ class PythonObject(private[python4s] var reference: PythonReference) extends Dyn
     */
   def apply(args: Seq[PythonObject] = Seq(),
             kwargs: Map[String, PythonObject] = Map()): PythonObject = {
-    val argsReference = args.asPythonTuple.reference
-    val kwargsReference = kwargs.map({ keyValue: (String, PythonObject) =>
-      val (key, value) = keyValue
-      PythonObject(key) -> value
-    }).asPythonDict.reference
+    val (names, values) = kwargs.toSeq.unzip
+    val kwnames = if (names.isEmpty) None else Some(keywordNames(names))
 
-    PythonObject(libPython.pyObjectCall(reference, argsReference, kwargsReference))
+    PythonObject(libPython.pyObjectVectorcall(reference, args.map(_.reference), values.map(_.reference), kwnames))
+  }
+
+  /**
+    * Call as a function with named arguments in call order, arguments with empty names are positional.
+    *
+    * @param args arguments
+    * @return python object
+    */
+  private[python4s] def callNamed(args: Seq[(String, PythonObject)]): PythonObject = {
+    val positional = args.collect { case (key, value) if key.isEmpty => value.reference }
+    val (names, values) = args.collect { case (key, value) if key.nonEmpty => key -> value.reference }.unzip
+    val kwnames = if (names.isEmpty) None else Some(keywordNames(names))
+
+    PythonObject(libPython.pyObjectVectorcall(reference, positional, values, kwnames))
   }
 
   /**
@@ -65,7 +118,7 @@ class PythonObject(private[python4s] var reference: PythonReference) extends Dyn
     * @return python object
     */
   def applyDynamic(methodName: String)(args: PythonObject*): PythonObject =
-    PythonObject(libPython.pyObjectCallMethodObjArgs(reference, methodName.reference, args.map(_.reference): _*))
+    PythonObject(libPython.pyObjectVectorcallMethod(reference, internedName(methodName), args.map(_.reference)))
 
   /**
     * Call a method with named arguments.
@@ -74,10 +127,40 @@ class PythonObject(private[python4s] var reference: PythonReference) extends Dyn
     * @param args       arguments
     * @return python object
     */
-  def applyDynamicNamed(methodName: String)(args: (String, PythonObject)*): PythonObject = selectDynamic(methodName)(
-    args.collect { case (key, value) if key.isEmpty => value },
-    args.filter { case (key, _) => key.nonEmpty }.toMap
-  )
+  def applyDynamicNamed(methodName: String)(args: (String, PythonObject)*): PythonObject = {
+    val positional = args.collect { case (key, value) if key.isEmpty => value.reference }
+    val (names, values) = args.collect { case (key, value) if key.nonEmpty => key -> value.reference }.unzip
+    val kwnames = if (names.isEmpty) None else Some(keywordNames(names))
+
+    PythonObject(libPython.pyObjectVectorcallMethod(reference, internedName(methodName), positional, values, kwnames))
+  }
+
+  /**
+    * Call as a function on the shared python executor.
+    * The call itself does not enter native code on the calling thread and the result can be awaited
+    * without pinning a carrier thread.
+    * Arguments are already python objects, converting Scala values to them (including implicit conversions
+    * of literals) still calls python on the calling thread. To keep a virtual thread out of native code entirely,
+    * build the arguments inside PythonExecutor.default.submit instead.
+    *
+    * @param args arguments
+    * @return future python object
+    */
+  def applyAsync(args: PythonObject*): Future[PythonObject] =
+    PythonExecutor.default.submit(apply(args: _*))
+
+  /**
+    * Call a method on the shared python executor.
+    * The call itself does not enter native code on the calling thread and the result can be awaited
+    * without pinning a carrier thread.
+    * Arguments are converted to python objects on the calling thread, see applyAsync.
+    *
+    * @param methodName method name
+    * @param args       arguments
+    * @return future python object
+    */
+  def callMethodAsync(methodName: String, args: PythonObject*): Future[PythonObject] =
+    PythonExecutor.default.submit(applyDynamic(methodName)(args: _*))
 
   /**
     * Get attribute value.
@@ -86,7 +169,7 @@ class PythonObject(private[python4s] var reference: PythonReference) extends Dyn
     * @return python object
     */
   def selectDynamic(attributeName: String): PythonObject =
-    PythonObject(libPython.pyObjectGetAttrString(reference, attributeName))
+    PythonObject(libPython.pyObjectGetAttr(reference, internedName(attributeName)))
 
   /**
     * Set item value.
@@ -104,7 +187,7 @@ class PythonObject(private[python4s] var reference: PythonReference) extends Dyn
     * @param value         attribute value
     */
   def updateDynamic(attributeName: String)(value: PythonObject): Unit =
-    libPython.pyObjectSetAttrString(reference, attributeName, value.reference)
+    libPython.pyObjectSetAttr(reference, internedName(attributeName), value.reference)
 
   override def equals(obj: Any): Boolean = obj match {
     case that: PythonObject => libPython.pyObjectRichCompare(reference, that.reference, PythonLibrary.pyEQ)
@@ -129,7 +212,7 @@ class PythonObject(private[python4s] var reference: PythonReference) extends Dyn
 
   def %(that: PythonObject): PythonObject = PythonObject(libPython.pyNumberRemainder(reference, that.reference))
 
-  def **(that: PythonObject): PythonObject = PythonObject(libPython.pyNumberPower(reference, that.reference, ().reference))
+  def **(that: PythonObject): PythonObject = PythonObject(libPython.pyNumberPower(reference, that.reference, Constants.none))
 
   def unary_-(): PythonObject = PythonObject(libPython.pyNumberNegative(reference))
 
@@ -148,57 +231,62 @@ class PythonObject(private[python4s] var reference: PythonReference) extends Dyn
   def |(that: PythonObject): PythonObject = PythonObject(libPython.pyNumberOr(reference, that.reference))
 
   def +=(that: PythonObject): Unit = {
-    reference = libPython.pyNumberInPlaceAdd(reference, that.reference)
+    replaceReference(libPython.pyNumberInPlaceAdd(reference, that.reference))
   }
 
   def -=(that: PythonObject): Unit = {
-    reference = libPython.pyNumberInPlaceSubtract(reference, that.reference)
+    replaceReference(libPython.pyNumberInPlaceSubtract(reference, that.reference))
   }
 
   def *=(that: PythonObject): Unit = {
-    reference = libPython.pyNumberInPlaceMultiply(reference, that.reference)
+    replaceReference(libPython.pyNumberInPlaceMultiply(reference, that.reference))
   }
 
   def @=(that: PythonObject): Unit = {
-    reference = libPython.pyNumberInPlaceMatrixMultiply(reference, that.reference)
+    replaceReference(libPython.pyNumberInPlaceMatrixMultiply(reference, that.reference))
   }
 
   def `//=`(that: PythonObject): Unit = {
-    reference = libPython.pyNumberInPlaceFloorDivide(reference, that.reference)
+    replaceReference(libPython.pyNumberInPlaceFloorDivide(reference, that.reference))
   }
 
   def /=(that: PythonObject): Unit = {
-    reference = libPython.pyNumberInPlaceTrueDivide(reference, that.reference)
+    replaceReference(libPython.pyNumberInPlaceTrueDivide(reference, that.reference))
   }
 
   def %=(that: PythonObject): Unit = {
-    reference = libPython.pyNumberInPlaceRemainder(reference, that.reference)
+    replaceReference(libPython.pyNumberInPlaceRemainder(reference, that.reference))
   }
 
   def **=(that: PythonObject): Unit = {
-    reference = libPython.pyNumberInPlacePower(reference, that.reference, ().reference)
+    replaceReference(libPython.pyNumberInPlacePower(reference, that.reference, Constants.none))
   }
 
   def <<=(that: PythonObject): Unit = {
-    reference = libPython.pyNumberInPlaceLshift(reference, that.reference)
+    replaceReference(libPython.pyNumberInPlaceLshift(reference, that.reference))
   }
 
   def >>=(that: PythonObject): Unit = {
-    reference = libPython.pyNumberInPlaceRshift(reference, that.reference)
+    replaceReference(libPython.pyNumberInPlaceRshift(reference, that.reference))
   }
 
   def &=(that: PythonObject): Unit = {
-    reference = libPython.pyNumberInPlaceAnd(reference, that.reference)
+    replaceReference(libPython.pyNumberInPlaceAnd(reference, that.reference))
   }
 
   def ^=(that: PythonObject): Unit = {
-    reference = libPython.pyNumberInPlaceXor(reference, that.reference)
+    replaceReference(libPython.pyNumberInPlaceXor(reference, that.reference))
   }
 
   def |=(that: PythonObject): Unit = {
-    reference = libPython.pyNumberInPlaceOr(reference, that.reference)
+    replaceReference(libPython.pyNumberInPlaceOr(reference, that.reference))
   }
 
+  // in-place operators replace the reference, the result must be owned like the replaced one
+  // so that an object created outside of an arena does not end up pointing to memory released by the arena
+  private def replaceReference(result: => PythonReference): Unit =
+    reference = PythonScope.owning(reference)(result)
+
   def <(that: PythonObject): Boolean = libPython.pyObjectRichCompare(reference, that.reference, PythonLibrary.pyLT)
 
   def <=(that: PythonObject): Boolean = libPython.pyObjectRichCompare(reference, that.reference, PythonLibrary.pyLE)
@@ -221,19 +309,76 @@ class PythonObject(private[python4s] var reference: PythonReference) extends Dyn
 
   def toDouble: Double = libPython.pyFloatAsDouble(reference)
 
+  def toBytes: Array[Byte] = libPython.pyBytesAsString(reference)
+
+  /**
+    * Get contiguous memory of an object supporting the buffer protocol.
+    * The buffer must be closed after use.
+    *
+    * @param writable whether JVM is going to write into the buffer
+    * @return python buffer
+    */
+  def getBuffer(writable: Boolean = false): PythonBuffer = new PythonBuffer(reference, writable)
+
+  /**
+    * Convert iterable of floats to array in bulk.
+    * Items are packed into array.array natively and copied from its buffer at once.
+    *
+    * @return array of doubles
+    */
+  def toDoubleArray: Array[Double] = withPackedBuffer("d") { buffer =>
+    val values = new Array[Double]((buffer.length / java.lang.Double.BYTES).toInt)
+    buffer.asDoubleBuffer.get(values)
+    values
+  }
+
+  /**
+    * Convert iterable of integers to array in bulk.
+    * Items are packed into array.array natively and copied from its buffer at once.
+    *
+    * @return array of longs
+    */
+  def toLongArray: Array[Long] = withPackedBuffer("q") { buffer =>
+    val values = new Array[Long]((buffer.length / java.lang.Long.BYTES).toInt)
+    buffer.asLongBuffer.get(values)
+    values
+  }
+
+  /**
+    * Convert iterable of integers to array in bulk.
+    * Items are packed into array.array natively and copied from its buffer at once.
+    *
+    * @return array of ints
+    */
+  def toIntArray: Array[Int] = withPackedBuffer("i") { buffer =>
+    val values = new Array[Int]((buffer.length / java.lang.Integer.BYTES).toInt)
+    buffer.asIntBuffer.get(values)
+    values
+  }
+
+  private def withPackedBuffer[T](format: String)(read: PythonBuffer => T): T = {
+    val buffer = Python.importModule("array").array(format, this).getBuffer()
+    try read(buffer)
+    finally buffer.close()
+  }
+
   def toArray: Array[PythonObject] = toIterator.toArray
 
   def toSeq: Seq[PythonObject] = toIterator.toSeq
 
   def toSet: Set[PythonObject] = toIterator.toSet
 
-  def toMap: Map[PythonObject, PythonObject] = PythonObject(libPython.pyMappingItems(reference))
-    .toIterator
-    .map { tuple =>
-      val key = PythonObject(libPython.pySequenceGetItem(tuple.reference, index = 0))
-      val value = PythonObject(libPython.pySequenceGetItem(tuple.reference, index = 1))
-      key -> value
-    }.toMap
+  def toMap: Map[PythonObject, PythonObject] =
+    if (libPython.pyDictCheckExact(reference))
+      libPython.gil(dictItems(reference).toMap)
+    else
+      PythonObject(libPython.pyMappingItems(reference))
+        .toIterator
+        .map { tuple =>
+          val key = PythonObject(libPython.pySequenceGetItem(tuple.reference, index = 0))
+          val value = PythonObject(libPython.pySequenceGetItem(tuple.reference, index = 1))
+          key -> value
+        }.toMap
 
   def toIterator: Iterator[PythonObject] = new Iterator[PythonObject] {
     private val pythonIterator = libPython.pyObjectGetIter(reference)
@@ -251,6 +396,75 @@ class PythonObject(private[python4s] var reference: PythonReference) extends Dyn
 
     private def advance(): Option[PythonReference] = libPython.pyIterNext(pythonIterator)
   }
+
+  /**
+    * Iterate over entries of exact dict with PyDict_Next, without building intermediate item tuples.
+    * Dict must not be resized while iterated.
+    *
+    * @param dictionary python dict
+    * @return iterator of key-value pairs
+    */
+  private def dictItems(dictionary: PythonReference): Iterator[(PythonObject, PythonObject)] =
+    new Iterator[(PythonObject, PythonObject)] {
+      private val cursor = new PythonLibrary.DictCursor(libPython.runtime)
+      private var nextItem = advance()
+
+      override def hasNext: Boolean = nextItem.isDefined
+
+      override def next(): (PythonObject, PythonObject) = nextItem match {
+        case Some((key, value)) =>
+          nextItem = advance()
+          PythonObject(key) -> PythonObject(value)
+        case None =>
+          throw new NoSuchElementException("Next on empty iterator.")
+      }
+
+      private def advance(): Option[(PythonReference, PythonReference)] = libPython.pyDictNext(dictionary, cursor)
+    }
+
+  /**
+    * Lazy view of python sequence, items are fetched from python on access.
+    * Negative indices are not wrapped around as in python, indices outside the sequence raise IndexOutOfBoundsException.
+    *
+    * @return indexed sequence backed by python object
+    */
+  def asIndexedSeq: collection.IndexedSeq[PythonObject] = new collection.IndexedSeq[PythonObject] {
+    private val sequence = reference
+
+    override def apply(i: Int): PythonObject =
+      if (i < 0 || i >= length)
+        throw new IndexOutOfBoundsException(s"$i is out of bounds (min 0, max ${length - 1})")
+      else
+        PythonObject(libPython.pySequenceGetItem(sequence, i))
+
+    override def length: Int = libPython.pyObjectSize(sequence).toInt
+  }
+
+  /**
+    * Lazy view of python mapping, entries are fetched from python on access.
+    *
+    * @return map backed by python object
+    */
+  def asMap: collection.Map[PythonObject, PythonObject] = new collection.AbstractMap[PythonObject, PythonObject] {
+    private val mapping = reference
+
+    override def get(key: PythonObject): Option[PythonObject] =
+      libPython.pyObjectGetItem(mapping, key.reference, Constants.keyError).map(PythonObject(_))
+
+    override def contains(key: PythonObject): Boolean = libPython.pySequenceContains(mapping, key.reference)
+
+    override def iterator: Iterator[(PythonObject, PythonObject)] =
+      if (libPython.pyDictCheckExact(mapping))
+        dictItems(mapping)
+      else
+        PythonObject(mapping).toIterator.map { key =>
+          key -> PythonObject(libPython.pyObjectGetItem(mapping, key.reference))
+        }
+
+    override def size: Int = libPython.pyObjectSize(mapping).toInt
+
+    override def knownSize: Int = -1
+  }
 }
 
 object PythonObject {
@@ -270,7 +484,169 @@ object PythonObject {
     */
   def apply(pythonObject: PythonObject): PythonObject = pythonObject
 
-  implicit def `unit asPython`(unit: Unit): PythonObject = PythonObject(libPython.pyBuildValue(""))
+  /**
+    * Expose direct byte buffer to python as memoryview without copying.
+    * The view covers the buffer from its position to its limit, items are interpreted in native byte order
+    * (use ByteOrder.nativeOrder() on the JVM side and memoryview.cast() or numpy.frombuffer() on the python side).
+    * Python does not keep the buffer alive, the buffer must stay reachable for as long as the view is used.
+    *
+    * @param buffer   direct byte buffer
+    * @param readOnly whether python is allowed to write into the buffer
+    * @return python memoryview
+    */
+  def memoryView(buffer: ByteBuffer, readOnly: Boolean = false): PythonObject = {
+    if (!buffer.isDirect)
+      throw new IllegalArgumentException("Only direct buffers can be shared with python")
+    if (!readOnly && buffer.isReadOnly)
+      throw new IllegalArgumentException("Read-only buffer can not be shared as writable")
+
+    val address = MemoryIO.getInstance().getDirectBufferAddress(buffer) + buffer.position()
+    memoryView(Pointer.wrap(libPython.runtime, address), buffer.remaining(), readOnly)
+  }
+
+  /**
+    * Convert array to python list of floats in bulk.
+    * Values are copied off-heap at once and unpacked into the list natively.
+    *
+    * @param values array of doubles
+    * @return python list
+    */
+  def fromDoubles(values: Array[Double]): PythonObject =
+    if (values.isEmpty)
+      PythonObject(libPython.pyListNew(0))
+    else {
+      val size = values.length.toLong * java.lang.Double.BYTES
+      val memory = allocate(size)
+      memory.put(0, values, 0, values.length)
+      unpack(memory, size, "d")
+    }
+
+  /**
+    * Convert array to python list of integers in bulk.
+    * Values are copied off-heap at once and unpacked into the list natively.
+    *
+    * @param values array of longs
+    * @return python list
+    */
+  def fromLongs(values: Array[Long]): PythonObject =
+    if (values.isEmpty)
+      PythonObject(libPython.pyListNew(0))
+    else {
+      val size = values.length.toLong * java.lang.Long.BYTES
+      val memory = allocate(size)
+      memory.put(0, values, 0, values.length)
+      unpack(memory, size, "q")
+    }
+
+  /**
+    * Convert array to python list of integers in bulk.
+    * Values are copied off-heap at once and unpacked into the list natively.
+    *
+    * @param values array of ints
+    * @return python list
+    */
+  def fromInts(values: Array[Int]): PythonObject =
+    if (values.isEmpty)
+      PythonObject(libPython.pyListNew(0))
+    else {
+      val size = values.length.toLong * java.lang.Integer.BYTES
+      val memory = allocate(size)
+      memory.put(0, values, 0, values.length)
+      unpack(memory, size, "i")
+    }
+
+  private def allocate(size: Long): Pointer = {
+    // direct memory is sized by int, larger arrays would wrap around to a too small allocation
+    require(size <= Int.MaxValue, s"Array of $size bytes is too large to convert in bulk.")
+    Memory.allocateDirect(libPython.runtime, size.toInt)
+  }
+
+  private def unpack(memory: Pointer, size: Long, format: String): PythonObject =
+    try memoryView(memory, size, readOnly = true).cast(format).tolist()
+    finally Reference.reachabilityFence(memory)
+
+  /**
+    * Expose native memory to python as memoryview without copying.
+    *
+    * @param memory   native memory
+    * @param size     size in bytes
+    * @param readOnly whether python is allowed to write into the memory
+    * @return python memoryview
+    */
+  private[python4s] def memoryView(memory: Pointer, size: Long, readOnly: Boolean): PythonObject = PythonObject(
+    libPython.pyMemoryViewFromMemory(memory, size, if (readOnly) PythonLibrary.pyBufRead else PythonLibrary.pyBufWrite)
+  )
+
+  private val internedNames = new PythonCache[String, PythonReference](capacity = 1024)
+
+  /**
+    * Get interned python string for attribute or method name.
+    * Interned strings are cached, so repeated lookups of the same name take no native call
+    * and hit the pointer comparison fast path of python attribute lookup.
+    *
+    * @param name attribute or method name
+    * @return interned python string
+    */
+  private[python4s] def internedName(name: String): PythonReference =
+    internedNames.getOrElseUpdate(name, libPython.pyUnicodeInternFromString(name))
+
+  private val keywordNamesTuples = new PythonCache[Seq[String], PythonReference](capacity = 1024)
+
+  /**
+    * Fail like python does when a call repeats a keyword argument.
+    *
+    * @param names keyword argument names in call order
+    */
+  private[python4s] def checkKeywords(names: Seq[String]): Unit =
+    names.diff(names.distinct).headOption.foreach { name =>
+      throw PythonException(s"[TypeError] got multiple values for keyword argument '$name'")
+    }
+
+  /**
+    * Get tuple of interned keyword argument names passed to vectorcall.
+    * Tuples are cached by the sequence of names, so repeated calls with the same named arguments
+    * build no python objects for the names.
+    *
+    * @param names keyword argument names in call order
+    * @return tuple of interned python strings
+    */
+  private[python4s] def keywordNames(names: Seq[String]): PythonReference =
+    keywordNamesTuples.getOrElseUpdate(names, {
+      checkKeywords(names)
+      names.map(name => PythonObject(internedName(name))).asPythonTuple.reference
+    })
+
+  /**
+    * Immutable python objects shared by conversions.
+    * Created once outside of any scope and never released, so converting to them takes no native call.
+    */
+  private[python4s] object Constants {
+    val smallIntegerMin = -5L
+    val smallIntegerMax = 256L
+
+    val none: PythonReference = PythonScope.detached(libPython.pyBuildValue(""))
+    val `true`: PythonReference = PythonScope.detached(libPython.pyBoolFromLong(1))
+    val `false`: PythonReference = PythonScope.detached(libPython.pyBoolFromLong(0))
+    val ellipsis: PythonReference = builtin("Ellipsis")
+    val notImplemented: PythonReference = builtin("NotImplemented")
+    val keyError: PythonReference = builtin("KeyError")
+    val emptyTuple: PythonReference = PythonScope.detached(libPython.pyTupleNew(0))
+    val emptyString: PythonReference = PythonScope.detached(libPython.pyUnicodeFromString(""))
+    val smallIntegers: Array[PythonReference] = PythonScope.detached {
+      (smallIntegerMin to smallIntegerMax).map(libPython.pyLongFromLong).toArray
+    }
+
+    /**
+      * Force creation of the constants.
+      */
+    def initialize(): Unit = ()
+
+    private def builtin(name: String): PythonReference = PythonScope.detached {
+      libPython.pyObjectGetItem(libPython.pyEvalGetBuiltins, libPython.pyUnicodeFromString(name))
+    }
+  }
+
+  implicit def `unit asPython`(unit: Unit): PythonObject = PythonObject(Constants.none)
 
   implicit def `byte asPython`(byte: Byte): PythonObject = byte.toLong
 
@@ -278,9 +654,14 @@ object PythonObject {
 
   implicit def `int asPython`(int: Int): PythonObject = int.toLong
 
-  implicit def `long asPython`(long: Long): PythonObject = PythonObject(libPython.pyLongFromLong(long))
+  implicit def `long asPython`(long: Long): PythonObject =
+    if (long >= Constants.smallIntegerMin && long <= Constants.smallIntegerMax)
+      PythonObject(Constants.smallIntegers((long - Constants.smallIntegerMin).toInt))
+    else
+      PythonObject(libPython.pyLongFromLong(long))
 
-  implicit def `boolean asPython`(boolean: Boolean): PythonObject = PythonObject(libPython.pyBoolFromLong(if (boolean) 1 else 0))
+  implicit def `boolean asPython`(boolean: Boolean): PythonObject =
+    PythonObject(if (boolean) Constants.`true` else Constants.`false`)
 
   implicit def `float asPython`(float: Float): PythonObject = float.toDouble
 
@@ -288,7 +669,13 @@ object PythonObject {
 
   implicit def `char asPython`(char: Char): PythonObject = char.toString
 
-  implicit def `string asPython`(string: String): PythonObject = PythonObject(libPython.pyUnicodeFromString(string))
+  implicit def `string asPython`(string: String): PythonObject =
+    if (string.isEmpty)
+      PythonObject(Constants.emptyString)
+    else
+      PythonObject(libPython.pyUnicodeFromString(string))
+
+  implicit def `bytes asPython`(bytes: Array[Byte]): PythonObject = PythonObject(libPython.pyBytesFromStringAndSize(bytes))
 
   implicit def `range asPython`(range: Range): PythonObject = PythonObject {
     val start = Some(range.start.reference)
@@ -331,13 +718,16 @@ object PythonObject {
       PythonObject(listReference)
     }
 
-    def asPythonTuple: PythonObject = {
-      val tupleReference = libPython.pyTupleNew(seq.length)
-      seq.zipWithIndex.foreach { case (obj, index) =>
-        libPython.pyTupleSetItem(tupleReference, index, obj.reference)
+    def asPythonTuple: PythonObject =
+      if (seq.isEmpty)
+        PythonObject(Constants.emptyTuple)
+      else {
+        val tupleReference = libPython.pyTupleNew(seq.length)
+        seq.zipWithIndex.foreach { case (obj, index) =>
+          libPython.pyTupleSetItem(tupleReference, index, obj.reference)
+        }
+        PythonObject(tupleReference)
       }
-      PythonObject(tupleReference)
-    }
   }
 
   implicit class `Set asPython`(val set: collection.Set[PythonObject]) extends AnyVal {
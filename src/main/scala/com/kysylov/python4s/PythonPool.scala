@@ -0,0 +1,265 @@
+/*
+ * Copyright 2019 Maksym Kysylov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.kysylov.python4s
+
+import java.io.{BufferedInputStream, BufferedOutputStream, DataInputStream, DataOutputStream, IOException}
+import java.lang.ProcessBuilder.Redirect
+import java.util.concurrent.{ConcurrentLinkedQueue, RejectedExecutionException}
+import java.util.concurrent.atomic.AtomicInteger
+
+import scala.concurrent.{Future, Promise}
+import scala.language.dynamics
+import scala.util.Try
+import scala.util.control.NonFatal
+
+/**
+  * Pool of python worker processes running calls beyond the global interpreter lock of the embedded interpreter.
+  * Calls are pickled by the embedded interpreter and sent to the least loaded worker over its standard streams.
+  * Called functions, arguments and results must be picklable and importable by both interpreters.
+  *
+  * @param size number of worker processes
+  */
+class PythonPool(size: Int = Runtime.getRuntime.availableProcessors) extends AutoCloseable {
+  require(size > 0, "Pool size must be positive.")
+
+  private val workers = Array.fill(size)(new PythonPool.Worker)
+  @volatile private var closed = false
+
+  /**
+    * Import python module in worker processes.
+    *
+    * @param name module name
+    * @return module proxy
+    */
+  def importModule(name: String): PythonPool.Module = new PythonPool.Module(this, name)
+
+  /**
+    * Call a module function in a worker process.
+    *
+    * @param module   module name
+    * @param function function name
+    * @param args     arguments
+    * @param kwargs   named arguments
+    * @return future python object
+    */
+  def call(module: String,
+           function: String,
+           args: Seq[PythonObject] = Seq(),
+           kwargs: Map[String, PythonObject] = Map()): Future[PythonObject] = {
+    val request = Python.withGil {
+      val kwargsDict = kwargs.map({ keyValue: (String, PythonObject) =>
+        val (key, value) = keyValue
+        PythonObject(key) -> value
+      }).asPythonDict
+
+      PythonPool.pickle.dumps(Seq[PythonObject](module, function, args.asPythonTuple, kwargsDict).asPythonTuple).toBytes
+    }
+
+    worker().submit(request)
+  }
+
+  /**
+    * Stop worker processes. Workers answer calls sent before closing and exit.
+    */
+  override def close(): Unit = synchronized {
+    closed = true
+    workers.foreach(_.close())
+  }
+
+  private def worker(): PythonPool.Worker = synchronized {
+    if (closed)
+      throw new RejectedExecutionException("Pool is closed.")
+
+    // replace workers whose process exited, calls sent to them would fail
+    workers.indices.foreach { index =>
+      if (!workers(index).alive) {
+        workers(index).close()
+        workers(index) = new PythonPool.Worker
+      }
+    }
+    workers.minBy(_.pending)
+  }
+}
+
+object PythonPool {
+  // looked up in the module cache instead of a lazy val, initializing a lazy val would import the module
+  // holding the initialization lock, deadlocking with threads that hold the global interpreter lock and wait for it
+  private def pickle: PythonObject = Python.importModule("pickle")
+
+  private val workerScript =
+    """import importlib
+      |import os
+      |import pickle
+      |import struct
+      |import sys
+      |
+      |requests = sys.stdin.buffer
+      |
+      |# Answer on a private copy of the standard output descriptor and point descriptor 1 to standard error,
+      |# output of print calls, C extensions or os.write(1, ...) cannot corrupt the response stream.
+      |responses = os.fdopen(os.dup(1), 'wb')
+      |os.dup2(2, 1)
+      |sys.stdout = sys.stderr
+      |
+      |# Add working directory to module search path.
+      |sys.path.insert(0, '')
+      |
+      |def read(size):
+      |    data = requests.read(size)
+      |    if len(data) < size:
+      |        raise EOFError()
+      |    return data
+      |
+      |while True:
+      |    try:
+      |        (size,) = struct.unpack('>i', read(4))
+      |        request = read(size)
+      |    except EOFError:
+      |        break
+      |    try:
+      |        module, function, args, kwargs = pickle.loads(request)
+      |        response = pickle.dumps((True, getattr(importlib.import_module(module), function)(*args, **kwargs)))
+      |    except BaseException as error:
+      |        response = pickle.dumps((False, '[{}] {}'.format(type(error).__name__, error)))
+      |    responses.write(struct.pack('>i', len(response)) + response)
+      |    responses.flush()
+      |""".stripMargin
+
+  /**
+    * Python module imported by worker processes.
+    *
+    * @param pool pool running the calls
+    * @param name module name
+    */
+  class Module private[python4s](pool: PythonPool, name: String) extends Dynamic {
+    /**
+      * Call a module function.
+      *
+      * @param functionName function name
+      * @param args         arguments
+      * @return future python object
+      */
+    def applyDynamic(functionName: String)(args: PythonObject*): Future[PythonObject] =
+      pool.call(name, functionName, args)
+
+    /**
+      * Call a module function with named arguments.
+      *
+      * @param functionName function name
+      * @param args         arguments
+      * @return future python object
+      */
+    def applyDynamicNamed(functionName: String)(args: (String, PythonObject)*): Future[PythonObject] = {
+      val kwargs = args.filter { case (key, _) => key.nonEmpty }
+      // a map would silently keep the last of repeated keywords
+      PythonObject.checkKeywords(kwargs.map(_._1))
+      pool.call(name, functionName, args.collect { case (key, value) if key.isEmpty => value }, kwargs.toMap)
+    }
+  }
+
+  /**
+    * Worker process answering requests in order they were sent.
+    */
+  private class Worker extends AutoCloseable {
+    private val process = new ProcessBuilder(Python.executable, "-c", workerScript)
+      .redirectError(Redirect.INHERIT)
+      .start()
+
+    private val requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream))
+    private val responses = new DataInputStream(new BufferedInputStream(process.getInputStream))
+
+    private val promises = new ConcurrentLinkedQueue[Promise[PythonObject]]()
+    private val pendingCount = new AtomicInteger()
+
+    // initialized before the reader starts, the reader clears it when the process exits
+    @volatile private var running = true
+
+    private val reader = new Thread(() => read(), "python4s-pool-reader")
+    reader.setDaemon(true)
+    reader.start()
+
+    def pending: Int = pendingCount.get()
+
+    def alive: Boolean = running
+
+    def submit(request: Array[Byte]): Future[PythonObject] = {
+      val promise = Promise[PythonObject]()
+      try synchronized {
+        pendingCount.incrementAndGet()
+        promises.add(promise)
+        requests.writeInt(request.length)
+        requests.write(request)
+        requests.flush()
+      } catch {
+        case exception: IOException =>
+          if (promises.remove(promise)) {
+            pendingCount.decrementAndGet()
+            promise.failure(exception)
+          }
+      }
+      promise.future
+    }
+
+    override def close(): Unit = {
+      try synchronized(requests.close())
+      catch {
+        // process has already exited
+        case _: IOException =>
+      }
+      process.waitFor()
+      reader.join()
+    }
+
+    private def read(): Unit = {
+      try {
+        while (true) {
+          val size = responses.readInt()
+          if (size < 0)
+            throw new IOException(s"Invalid response size $size.")
+          val response = new Array[Byte](size)
+          responses.readFully(response)
+          pendingCount.decrementAndGet()
+
+          val promise = promises.poll()
+          try promise.complete(Try(load(response)))
+          finally promise.tryFailure(new IOException("Response could not be loaded."))
+        }
+      } catch {
+        case error: Throwable =>
+          running = false
+          // framing of the response stream is lost, the process cannot answer any more calls
+          process.destroy()
+          val exception = error match {
+            case exception: IOException => exception
+            case _ => new IOException("Worker failed to read responses.", error)
+          }
+          Iterator.continually(promises.poll()).takeWhile(_ != null).foreach(_.failure(exception))
+          if (!NonFatal(error))
+            throw error
+      }
+    }
+
+    private def load(response: Array[Byte]): PythonObject = Python.withGil {
+      val result = pickle.loads(response)
+      if (result(0).toBoolean)
+        result(1)
+      else
+        throw PythonException(result(1).toString)
+    }
+  }
+
+}
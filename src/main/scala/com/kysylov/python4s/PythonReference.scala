@@ -16,24 +16,38 @@
 
 package com.kysylov.python4s
 
-import java.lang.ref.Cleaner
-import java.lang.ref.Cleaner.Cleanable
-import java.util.concurrent.ConcurrentLinkedQueue
+import java.lang.ref.{PhantomReference, ReferenceQueue}
 
 import com.kysylov.python4s.Python.libPython
 import jnr.ffi.Pointer
 
-import scala.annotation.tailrec
+private[python4s] final class PythonReference private(val pointer: Pointer) extends AutoCloseable {
+  // scope owning the reference, null if the reference is released by garbage collection
+  private[python4s] val scope = PythonScope.active
+  // null if the reference is owned by a scope
+  private val phantom = PythonReference.register(this)
 
-private[python4s] class PythonReference private(val pointer: Pointer) extends AutoCloseable {
-  private val cleanable = PythonReference.register(this)
-
-  override def close(): Unit = cleanable.clean()
+  override def close(): Unit = if (phantom != null) phantom.enqueue()
 }
 
 private[python4s] object PythonReference {
-  private val cleaner = Cleaner.create()
-  private val cleanableQueue = new ConcurrentLinkedQueue[Pointer]()
+  private val phantomQueue = new ReferenceQueue[PythonReference]()
+  private val reclaimBudget = sys.props.get("python4s.reclaim.budget").map(_.toInt).getOrElse(1024)
+  private val reclaimThreshold = sys.props.get("python4s.reclaim.threshold").map(_.toInt).getOrElse(256) min reclaimBudget
+  private val reclaimDelay = 10L
+  private val backgroundReclaim = sys.props.get("python4s.reclaim.background").exists(_.toBoolean)
+
+  require(reclaimBudget > 0, "python4s.reclaim.budget must be positive.")
+  require(reclaimThreshold > 0, "python4s.reclaim.threshold must be positive.")
+
+  // head of the list keeping registered phantoms strongly reachable until they are enqueued
+  private var phantoms: Phantom = _
+
+  if (backgroundReclaim) {
+    val reclaimer = new Thread(() => reclaimInBackground(), "python4s-reclaimer")
+    reclaimer.setDaemon(true)
+    reclaimer.start()
+  }
 
   /**
     * Borrow reference from python interpreter.
@@ -42,7 +56,7 @@ private[python4s] object PythonReference {
     * @return non-null reference or None
     */
   def borrow(pointer: Pointer): Option[PythonReference] = {
-    reclaim()
+    reclaimInForeground()
     libPython.pyIncRef(pointer)
     Option(pointer).map(new PythonReference(_))
   }
@@ -54,30 +68,138 @@ private[python4s] object PythonReference {
     * @return non-null reference or None
     */
   def receive(pointer: Pointer): Option[PythonReference] = {
-    reclaim()
+    reclaimInForeground()
     Option(pointer).map(new PythonReference(_))
   }
 
   /**
-    * Release phantom reachable python references.
+    * Receive reference from python interpreter, pointer is known to be non-null.
+    *
+    * @param pointer non-null native pointer
+    * @return reference
     */
-  @tailrec
-  def reclaim(): Unit = Option(cleanableQueue.poll()) match {
-    case Some(pointer) =>
-      libPython.pyDecRef(pointer)
-      reclaim()
-    case None =>
+  def apply(pointer: Pointer): PythonReference = {
+    reclaimInForeground()
+    new PythonReference(pointer)
+  }
+
+  /**
+    * Release phantom reachable python references holding the global interpreter lock once.
+    * At most python4s.reclaim.budget references are released per call, the rest are left to subsequent calls.
+    */
+  def reclaim(): Unit = {
+    var phantom = phantomQueue.poll()
+    if (phantom != null) libPython.gil {
+      var count = 0
+      while (phantom != null) {
+        release(phantom.asInstanceOf[Phantom])
+        count += 1
+        phantom = if (count < reclaimBudget) phantomQueue.poll() else null
+      }
+    }
+  }
+
+  /**
+    * Release phantom reachable python references on the calling thread unless background reclaimer is enabled.
+    */
+  private def reclaimInForeground(): Unit = if (!backgroundReclaim) reclaim()
+
+  /**
+    * Release phantom reachable python references on the reclaimer thread.
+    * Wakes up on the first enqueued reference, waits a little for python4s.reclaim.threshold references to accumulate
+    * and releases them holding the global interpreter lock for at most python4s.reclaim.budget references at a time.
+    */
+  private def reclaimInBackground(): Unit = {
+    val batch = new Array[Phantom](reclaimBudget)
+    libPython.attachThread()
+
+    while (true) {
+      var size = 0
+      try {
+        var phantom = phantomQueue.remove()
+        val deadline = System.currentTimeMillis() + reclaimDelay
+
+        while (phantom != null) {
+          batch(size) = phantom.asInstanceOf[Phantom]
+          size += 1
+          phantom =
+            if (size == reclaimBudget)
+              null
+            else if (size >= reclaimThreshold)
+              phantomQueue.poll()
+            else {
+              val timeout = deadline - System.currentTimeMillis()
+              if (timeout > 0) phantomQueue.remove(timeout) else phantomQueue.poll()
+            }
+        }
+      } catch {
+        // foreground reclaim is disabled, the reclaimer must keep running; phantoms taken so far are released below
+        case _: InterruptedException =>
+      }
+
+      if (size > 0) libPython.gil {
+        var index = 0
+        while (index < size) {
+          release(batch(index))
+          batch(index) = null
+          index += 1
+        }
+      }
+    }
   }
 
   /**
     * Register python reference for clean up.
+    * References created inside a scope are released by the scope instead.
     *
     * @param reference python reference
-    * @return cleanable
+    * @return phantom enqueued once reference is closed or becomes phantom reachable, null if owned by a scope
     */
-  private def register(reference: PythonReference): Cleanable = {
-    val pointer = reference.pointer
-    cleaner.register(reference, () => cleanableQueue.add(pointer))
+  private def register(reference: PythonReference): Phantom = {
+    if (reference.scope != null) {
+      reference.scope.own(reference.pointer)
+      null
+    } else {
+      val phantom = new Phantom(reference, reference.pointer)
+      synchronized {
+        phantom.next = phantoms
+        if (phantoms != null)
+          phantoms.previous = phantom
+        phantoms = phantom
+      }
+      phantom
+    }
+  }
+
+  /**
+    * Unregister enqueued phantom and release its python reference.
+    *
+    * @param phantom enqueued phantom
+    */
+  private def release(phantom: Phantom): Unit = {
+    synchronized {
+      if (phantom.previous != null)
+        phantom.previous.next = phantom.next
+      else
+        phantoms = phantom.next
+      if (phantom.next != null)
+        phantom.next.previous = phantom.previous
+      phantom.previous = null
+      phantom.next = null
+    }
+    libPython.pyDecRef(phantom.pointer)
+  }
+
+  /**
+    * Phantom of python reference, replaces cleaner registration and clean up action with a single object.
+    *
+    * @param reference python reference
+    * @param pointer   native pointer to release
+    */
+  private[python4s] final class Phantom(reference: PythonReference, val pointer: Pointer)
+    extends PhantomReference[PythonReference](reference, phantomQueue) {
+    var previous: Phantom = _
+    var next: Phantom = _
   }
-}
 
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 Maksym Kysylov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.kysylov.python4s
+
+import com.kysylov.python4s.Python.libPython
+import jnr.ffi.Pointer
+
+import scala.collection.mutable
+
+/**
+  * Scope owning python references created by the current thread inside it.
+  * All of them are released at once when the scope exits, without waiting for garbage collection.
+  * Objects used after the scope exits must be promoted.
+  *
+  * @param parent enclosing scope or null
+  */
+final class PythonScope private(parent: PythonScope) {
+  private val pointers = mutable.ArrayBuffer[Pointer]()
+
+  /**
+    * Keep python object alive after the scope exits.
+    * Promoted object belongs to the enclosing scope if there is one, otherwise it is released by garbage collection.
+    *
+    * @param obj python object created inside the scope
+    * @return python object surviving the scope
+    */
+  def promote(obj: PythonObject): PythonObject =
+    PythonScope.within(parent)(PythonObject(PythonReference.borrow(obj.reference.pointer).get))
+
+  private[python4s] def own(pointer: Pointer): Unit = pointers += pointer
+
+  private def release(): Unit = libPython.gil {
+    pointers.foreach(libPython.pyDecRef)
+    pointers.clear()
+  }
+}
+
+object PythonScope {
+  private val current = new ThreadLocal[PythonScope]()
+
+  /**
+    * Run block of code in a new scope.
+    *
+    * @param body block of code
+    * @return result of the block
+    */
+  def apply[T](body: PythonScope => T): T = {
+    val parent = current.get()
+    val scope = new PythonScope(parent)
+    current.set(scope)
+    try body(scope)
+    finally {
+      current.set(parent)
+      scope.release()
+    }
+  }
+
+  /**
+    * Scope of the current thread.
+    *
+    * @return innermost scope or null
+    */
+  private[python4s] def active: PythonScope = current.get()
+
+  /**
+    * Run block of code outside of any scope, e.g. to create long living references.
+    *
+    * @param body block of code
+    * @return result of the block
+    */
+  private[python4s] def detached[T](body: => T): T = within(null)(body)
+
+  /**
+    * Run block of code in the scope owning the reference, references created by the block live as long as it does.
+    *
+    * @param reference python reference
+    * @param body      block of code
+    * @return result of the block
+    */
+  private[python4s] def owning[T](reference: PythonReference)(body: => T): T = within(reference.scope)(body)
+
+  private def within[T](scope: PythonScope)(body: => T): T = {
+    val previous = current.get()
+    current.set(scope)
+    try body
+    finally current.set(previous)
+  }
+}
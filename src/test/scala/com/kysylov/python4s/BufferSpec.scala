@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Maksym Kysylov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.kysylov.python4s
+
+import java.nio.{ByteBuffer, ByteOrder}
+
+import org.scalatest.flatspec.AnyFlatSpec
+import org.scalatest.matchers.should.Matchers
+
+class BufferSpec extends AnyFlatSpec with Matchers {
+
+  "A memory view" should "share direct buffer with python" in {
+    val buffer = ByteBuffer.allocateDirect(2 * java.lang.Double.BYTES).order(ByteOrder.nativeOrder())
+    buffer.putDouble(0, 1.5).putDouble(java.lang.Double.BYTES, 2.5)
+
+    val doubles = PythonObject.memoryView(buffer).cast("d")
+    doubles.tolist().toString shouldEqual "[1.5, 2.5]"
+
+    doubles(0) = 3.5
+    buffer.getDouble(0) shouldEqual 3.5
+
+    val readOnly = PythonObject.memoryView(buffer, readOnly = true)
+    readOnly.readonly.toBoolean shouldEqual true
+    a[PythonException] should be thrownBy {
+      readOnly(0) = 1
+    }
+
+    an[IllegalArgumentException] should be thrownBy PythonObject.memoryView(ByteBuffer.allocate(8))
+  }
+
+  "A python buffer" should "map python memory into JVM" in {
+    val array = Python.importModule("array")
+
+    val doubles = array.array("d", Seq[PythonObject](1.5, 2.5).asPythonList)
+    val doubleBuffer = doubles.getBuffer(writable = true)
+    try {
+      doubleBuffer.format shouldEqual "d"
+      doubleBuffer.length shouldEqual 16
+      val values = doubleBuffer.asDoubleBuffer
+      values.get(1) shouldEqual 2.5
+      values.put(0, 3.5)
+    } finally doubleBuffer.close()
+    doubles(0).toDouble shouldEqual 3.5
+
+    val longs = array.array("q", Seq[PythonObject](1, 2, 3).asPythonList).getBuffer()
+    try {
+      longs.asLongBuffer.get(2) shouldEqual 3L
+      an[UnsupportedOperationException] should be thrownBy longs.asDoubleBuffer
+    } finally longs.close()
+
+    val bytes = PythonObject("foo".getBytes).getBuffer()
+    try {
+      bytes.readOnly shouldEqual true
+      bytes.asByteBuffer.get(0) shouldEqual 'f'.toByte
+    } finally bytes.close()
+
+    a[PythonException] should be thrownBy PythonObject("foo".getBytes).getBuffer(writable = true)
+  }
+
+  "Bulk conversions" should "convert primitive arrays to and from python lists" in {
+    val doubles = PythonObject.fromDoubles(Array(1.5, 2.5))
+    doubles.toString shouldEqual "[1.5, 2.5]"
+    doubles.toDoubleArray shouldEqual Array(1.5, 2.5)
+
+    val longs = PythonObject.fromLongs(Array(1L, Long.MaxValue))
+    longs.toString shouldEqual s"[1, ${Long.MaxValue}]"
+    longs.toLongArray shouldEqual Array(1L, Long.MaxValue)
+
+    val ints = PythonObject.fromInts(Array(-1, 2, 3))
+    ints.toString shouldEqual "[-1, 2, 3]"
+    ints.toIntArray shouldEqual Array(-1, 2, 3)
+
+    PythonObject.fromDoubles(Array()).toString shouldEqual "[]"
+    Python.range(5).toLongArray shouldEqual Array(0L, 1L, 2L, 3L, 4L)
+  }
+
+}
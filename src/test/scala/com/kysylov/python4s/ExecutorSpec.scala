@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 Maksym Kysylov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.kysylov.python4s
+
+import java.util.concurrent.ExecutionException
+
+import org.scalatest.flatspec.AnyFlatSpec
+import org.scalatest.matchers.should.Matchers
+
+import scala.concurrent.duration._
+import scala.concurrent.Await
+
+class ExecutorSpec extends AnyFlatSpec with Matchers {
+
+  "An executor" should "run submitted tasks on the interpreter thread" in {
+    val executor = new PythonExecutor(batchSize = 4)
+    try {
+      val results = (1 to 100).map { index =>
+        executor.submit((PythonObject(index) * PythonObject(2)).toInt)
+      }
+
+      results.map(Await.result(_, 1.minute)) shouldEqual (1 to 100).map(_ * 2)
+    } finally executor.close()
+  }
+
+  it should "fail futures of failed tasks" in {
+    val executor = new PythonExecutor()
+    try {
+      val result = executor.submit(PythonObject(1) / PythonObject(0))
+
+      the[PythonException] thrownBy {
+        Await.result(result, 1.minute)
+      } should have message "[ZeroDivisionError] division by zero"
+    } finally executor.close()
+  }
+
+  it should "fail futures of tasks throwing fatal errors and keep running" in {
+    val executor = new PythonExecutor()
+    try {
+      // futures box fatal errors into ExecutionException
+      (the[ExecutionException] thrownBy {
+        Await.result(executor.submit(throw new InterruptedException()), 1.minute)
+      }).getCause shouldBe an[InterruptedException]
+      (the[ExecutionException] thrownBy {
+        Await.result(executor.submit(throw new LinkageError()), 1.minute)
+      }).getCause shouldBe a[LinkageError]
+      Await.result(executor.submit(PythonObject(2).toInt), 1.minute) shouldEqual 2
+    } finally executor.close()
+  }
+
+  it should "call python objects asynchronously" in {
+    val capWords = Python.importModule("string").capwords
+
+    Await.result(capWords.applyAsync("hello world"), 1.minute).toString shouldEqual "Hello World"
+    Await.result(PythonObject("foo,bar").callMethodAsync("split", ','), 1.minute).toSeq.map(_.toString) shouldEqual
+      Seq("foo", "bar")
+  }
+
+}
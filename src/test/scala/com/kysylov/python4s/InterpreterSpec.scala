@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 Maksym Kysylov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.kysylov.python4s
+
+import org.scalatest.flatspec.AnyFlatSpec
+import org.scalatest.matchers.should.Matchers
+
+class InterpreterSpec extends AnyFlatSpec with Matchers {
+
+  "An interpreter" should "cache imported modules" in {
+    val math = Python.importModule("math")
+    Python.importModule("math").reference shouldBe theSameInstanceAs(math.reference)
+
+    Python.invalidateModule("math")
+    val imported = Python.importModule("math")
+    imported.reference should not be theSameInstanceAs(math.reference)
+    imported shouldEqual math
+
+    val reloaded = Python.reloadModule("json")
+    Python.importModule("json").reference shouldBe theSameInstanceAs(reloaded.reference)
+    reloaded.dumps(Seq[PythonObject](1, 2).asPythonList).toString shouldEqual "[1, 2]"
+
+    Python.invalidateModules()
+    Python.importModule("math") shouldEqual math
+  }
+
+  it should "execute and evaluate source code" in {
+    Python.exec("python4s_answer = 42")
+    Python.eval("python4s_answer + 1").toInt shouldEqual 43
+
+    val globals = Map.empty[PythonObject, PythonObject].asPythonDict
+    (1 to 3).foreach(_ => Python.exec("total = total + 1 if 'total' in globals() else 1", globals))
+    globals("total").toInt shouldEqual 3
+    Python.eval("total * 2", globals).toInt shouldEqual 6
+    globals.asMap.contains("__builtins__") shouldEqual true
+    Python.eval("len(str(12345))", Map.empty[PythonObject, PythonObject].asPythonDict).toInt shouldEqual 5
+
+    a[PythonException] should be thrownBy Python.eval("1 +")
+
+    val code = Python.compile("python4s_answer * 2", "<string>", "eval")
+    Python.selectDynamic("eval")(code).toInt shouldEqual 84
+  }
+
+}
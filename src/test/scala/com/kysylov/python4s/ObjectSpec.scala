@@ -44,6 +44,35 @@ class ObjectSpec extends AnyFlatSpec with Matchers {
       .toSeq shouldEqual Seq("foo", "bar,baz")
   }
 
+  it should "call functions with named arguments" in {
+    Python.int("ff", base = 16).toInt shouldEqual 255
+    Python.sorted(Seq[PythonObject](2, 3, 1).asPythonList, reverse = true).toString shouldEqual "[3, 2, 1]"
+
+    val dict = Python.dict
+    dict(kwargs = Map[String, PythonObject]("foo" -> 1, "bar" -> 2)).toString shouldEqual "{'foo': 1, 'bar': 2}"
+    dict(
+      args = Seq(Seq[PythonObject](Seq[PythonObject]("foo", 1).asPythonTuple).asPythonList),
+      kwargs = Map[String, PythonObject]("bar" -> 2)
+    ).toString shouldEqual "{'foo': 1, 'bar': 2}"
+  }
+
+  it should "reuse keyword names between named calls" in {
+    val first = PythonObject("foo,bar,baz").split(sep = ',', maxsplit = 1)
+    val second = PythonObject("foo,bar,baz").split(sep = ',', maxsplit = 2)
+
+    first.toIterator.map(_.toString).toSeq shouldEqual Seq("foo", "bar,baz")
+    second.toIterator.map(_.toString).toSeq shouldEqual Seq("foo", "bar", "baz")
+    PythonObject.keywordNames(Seq("sep", "maxsplit")) shouldBe
+      theSameInstanceAs(PythonObject.keywordNames(Seq("sep", "maxsplit")))
+
+    the[PythonException] thrownBy {
+      PythonObject("foo,bar,baz").split(sep = ',', sep = ';')
+    } should have message "[TypeError] got multiple values for keyword argument 'sep'"
+    the[PythonException] thrownBy {
+      Python.int("ff", base = 16, base = 10)
+    } should have message "[TypeError] got multiple values for keyword argument 'base'"
+  }
+
   it should "support subscriptable objects" in {
     val dict = Map(PythonObject("foo") -> PythonObject("bar")).asPythonDict
     dict("foo").toString shouldEqual "bar"
@@ -52,6 +81,15 @@ class ObjectSpec extends AnyFlatSpec with Matchers {
     dict("foo").toString shouldEqual "baz"
   }
 
+  it should "support explicit calls and item access" in {
+    val dict = Map(PythonObject("foo") -> PythonObject("bar")).asPythonDict
+    dict.getItem("foo").toString shouldEqual "bar"
+
+    val capWords = Python.importModule("string").capwords
+    capWords.callFunction("hello world").toString shouldEqual "Hello World"
+    capWords("hello world").toString shouldEqual "Hello World"
+  }
+
   it should "support object attributes" in {
     val complex = Python.complex(1, 2)
     complex.real.toDouble shouldEqual 1.0
@@ -76,6 +114,48 @@ class ObjectSpec extends AnyFlatSpec with Matchers {
     Seq[PythonObject]("foo", "bar", "baz").asPythonList.toString shouldEqual "['foo', 'bar', 'baz']"
   }
 
+  it should "provide lazy collection views" in {
+    val seq = Seq[PythonObject]("foo", "bar", "baz").asPythonList.asIndexedSeq
+    seq.length shouldEqual 3
+    seq(1).toString shouldEqual "bar"
+    seq.map(_.toString) shouldEqual Seq("foo", "bar", "baz")
+    an[IndexOutOfBoundsException] should be thrownBy seq(-1)
+    an[IndexOutOfBoundsException] should be thrownBy seq(3)
+
+    val map = Map[PythonObject, PythonObject](PythonObject("foo") -> 1, PythonObject("bar") -> 2).asPythonDict.asMap
+    map.size shouldEqual 2
+    map.get("foo").map(_.toInt) shouldEqual Some(1)
+    map.get("baz") shouldEqual None
+    map.knownSize shouldEqual -1
+    map.contains("bar") shouldEqual true
+    map.map { case (key, value) => key.toString -> value.toInt }.toMap shouldEqual Map("foo" -> 1, "bar" -> 2)
+  }
+
+  it should "convert dicts and other mappings to map" in {
+    val dict = Map[PythonObject, PythonObject](PythonObject("foo") -> 1, PythonObject("bar") -> 2).asPythonDict
+    dict.toMap.map { case (key, value) => key.toString -> value.toInt } shouldEqual Map("foo" -> 1, "bar" -> 2)
+
+    val orderedDict = Python.importModule("collections").OrderedDict(dict)
+    orderedDict.toMap.map { case (key, value) => key.toString -> value.toInt } shouldEqual Map("foo" -> 1, "bar" -> 2)
+  }
+
+  it should "reuse cached constants" in {
+    PythonObject(()).toString shouldEqual "None"
+    Python.None.toString shouldEqual "None"
+    Python.True.toBoolean shouldEqual true
+    Python.False.toBoolean shouldEqual false
+    Python.Ellipsis.toString shouldEqual "Ellipsis"
+    Python.NotImplemented.toString shouldEqual "NotImplemented"
+
+    PythonObject(42).reference shouldBe theSameInstanceAs(PythonObject(42).reference)
+    PythonObject(1000).toLong shouldEqual 1000L
+    PythonObject("").toString shouldEqual ""
+
+    val one = PythonObject(1)
+    one += PythonObject(1)
+    PythonObject(1).toInt shouldEqual 1
+  }
+
   it should "calculate hash" in {
     val math = Python.importModule("math")
     math.e.hashCode() shouldEqual 1656245132797518850L.toInt
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Maksym Kysylov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.kysylov.python4s
+
+import org.scalatest.flatspec.AnyFlatSpec
+import org.scalatest.matchers.should.Matchers
+
+import scala.concurrent.Await
+import scala.concurrent.duration._
+
+class PoolSpec extends AnyFlatSpec with Matchers {
+
+  "A process pool" should "run calls in worker processes" in {
+    val pool = new PythonPool(size = 2)
+    try {
+      val math = pool.importModule("math")
+      Await.result(math.factorial(10), 1.minute).toLong shouldEqual 3628800L
+
+      val localPid = Python.importModule("os").getpid().toLong
+      val remotePids = (1 to 4).map(_ => pool.importModule("os").getpid()).map(Await.result(_, 1.minute).toLong)
+      remotePids should not contain localPid
+
+      val capWords = pool.importModule("string").capwords("hello_world", sep = '_')
+      Await.result(capWords, 1.minute).toString shouldEqual "Hello_World"
+
+      the[PythonException] thrownBy {
+        pool.importModule("string").capwords("hello_world", sep = '_', sep = '-')
+      } should have message "[TypeError] got multiple values for keyword argument 'sep'"
+    } finally pool.close()
+  }
+
+  it should "fail calls raising python exceptions" in {
+    val pool = new PythonPool(size = 1)
+    try {
+      the[PythonException] thrownBy {
+        Await.result(pool.importModule("operator").truediv(1, 0), 1.minute)
+      } should have message "[ZeroDivisionError] division by zero"
+    } finally pool.close()
+  }
+
+  it should "keep responses apart from output written by called functions" in {
+    val pool = new PythonPool(size = 1)
+    try {
+      val os = pool.importModule("os")
+      Await.result(os.write(1, "stray output\n".getBytes), 1.minute).toInt shouldEqual 13
+      Await.result(pool.importModule("math").factorial(5), 1.minute).toLong shouldEqual 120L
+    } finally pool.close()
+  }
+
+  it should "survive requests failing in worker processes" in {
+    val pool = new PythonPool(size = 1)
+    try {
+      // class of a module existing only in the embedded interpreter can not be unpickled by the worker
+      val globals = Map.empty[PythonObject, PythonObject].asPythonDict
+      Python.exec(
+        """import sys
+          |import types
+          |
+          |class Local:
+          |    pass
+          |
+          |Local.__module__ = 'python4s_local'
+          |sys.modules['python4s_local'] = types.ModuleType('python4s_local')
+          |sys.modules['python4s_local'].Local = Local
+          |""".stripMargin, globals)
+      a[PythonException] should be thrownBy {
+        Await.result(pool.importModule("builtins").repr(globals("Local")()), 1.minute)
+      }
+      Await.result(pool.importModule("math").factorial(5), 1.minute).toLong shouldEqual 120L
+
+      // worker process exits without answering and is replaced
+      an[Exception] should be thrownBy Await.result(pool.importModule("os")._exit(1), 1.minute)
+      Await.result(pool.importModule("math").factorial(5), 1.minute).toLong shouldEqual 120L
+    } finally pool.close()
+  }
+
+}
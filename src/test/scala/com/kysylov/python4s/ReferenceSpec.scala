@@ -35,4 +35,40 @@ class ReferenceSpec extends AnyFlatSpec with Matchers {
     sys.getrefcount(pyObject).toInt shouldEqual 1
   }
 
+  it should "release references created inside an arena on exit" in {
+    val sys = Python.importModule("sys")
+
+    val pyObject = PythonObject("test")
+    Python.arena { _ =>
+      PythonReference.borrow(pyObject.reference.pointer)
+      sys.getrefcount(pyObject).toInt shouldEqual 2
+    }
+    sys.getrefcount(pyObject).toInt shouldEqual 1
+
+    val promoted = Python.arena { scope =>
+      scope.promote(PythonObject("foo") + PythonObject("bar"))
+    }
+    promoted.toString shouldEqual "foobar"
+  }
+
+  it should "keep objects updated in place inside an arena owned by their creator" in {
+    val total = PythonObject(1000)
+    Python.arena { _ =>
+      (1 to 3).foreach(_ => total += PythonObject(1000))
+    }
+    PythonReference.reclaim()
+    total.reference.scope shouldBe null
+    total.toLong shouldEqual 4000L
+
+    val sum = Python.arena { scope =>
+      val inner = PythonObject(1000)
+      Python.arena { _ =>
+        inner += PythonObject(1000)
+      }
+      inner.reference.scope shouldBe theSameInstanceAs(scope)
+      scope.promote(inner)
+    }
+    sum.toLong shouldEqual 2000L
+  }
+
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 Maksym Kysylov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.kysylov.python4s
+
+import org.scalatest.flatspec.AnyFlatSpec
+import org.scalatest.matchers.should.Matchers
+
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration._
+import scala.concurrent.{Await, Future}
+
+class ThreadSpec extends AnyFlatSpec with Matchers {
+
+  "An interpreter" should "be shared by multiple threads" in {
+    val sums = Future.sequence((1 to 8).map { _ =>
+      Future {
+        (1 to 1000).map(PythonObject(_)).reduce(_ + _).toLong
+      }
+    })
+
+    Await.result(sums, 1.minute) shouldEqual Seq.fill(8)(500500L)
+  }
+
+  it should "run a block holding the global interpreter lock" in {
+    Python.withGil {
+      val math = Python.importModule("math")
+      math.sqrt(16).toDouble + math.sqrt(9).toDouble
+    } shouldEqual 7.0
+  }
+
+  it should "let other threads run while a call releases the global interpreter lock" in {
+    val sleep = Python.importModule("time").sleep
+    val threads = (1 to 4).map(_ => new Thread(() => sleep(0.5)))
+
+    val start = System.nanoTime()
+    threads.foreach(_.start())
+    threads.foreach(_.join())
+
+    (System.nanoTime() - start).nanos should be < 1500.millis
+  }
+
+  it should "reuse python thread state of attached threads" in {
+    // thread local python values live in the python thread state
+    val globals = Map.empty[PythonObject, PythonObject].asPythonDict
+    Python.exec("import threading\n\nlocal = threading.local()", globals)
+
+    // value set by one call is seen by the next one only if both run in the same thread state
+    def localValue(attached: Boolean): Int = {
+      var value = 0
+      val body = () => {
+        Python.exec("local.value = 42", globals)
+        value = Python.eval("getattr(local, 'value', 0)", globals).toInt
+      }
+      val thread = new Thread(() => if (attached) Python.withAttachedThread(body()) else body())
+      thread.start()
+      thread.join()
+      value
+    }
+
+    localValue(attached = true) shouldEqual 42
+    localValue(attached = false) shouldEqual 0
+  }
+
+  it should "not keep python thread states of finished threads" in {
+    val globals = Map.empty[PythonObject, PythonObject].asPythonDict
+    Python.exec(
+      """import ctypes
+        |
+        |api = ctypes.pythonapi
+        |api.PyInterpreterState_Get.restype = ctypes.c_void_p
+        |api.PyInterpreterState_ThreadHead.argtypes = [ctypes.c_void_p]
+        |api.PyInterpreterState_ThreadHead.restype = ctypes.c_void_p
+        |api.PyThreadState_Next.argtypes = [ctypes.c_void_p]
+        |api.PyThreadState_Next.restype = ctypes.c_void_p
+        |
+        |def thread_states():
+        |    count = 0
+        |    state = api.PyInterpreterState_ThreadHead(api.PyInterpreterState_Get())
+        |    while state:
+        |        count += 1
+        |        state = api.PyThreadState_Next(state)
+        |    return count
+        |""".stripMargin, globals)
+    val threadStates = globals("thread_states")
+
+    val before = threadStates().toInt
+    val threads = (1 to 16).map(_ => new Thread(() => (PythonObject(1000) + PythonObject(1)).toLong))
+    threads.foreach(_.start())
+    threads.foreach(_.join())
+
+    threadStates().toInt shouldEqual before
+
+    val executor = new PythonExecutor(threads = 2)
+    Await.result(executor.submit(threadStates().toInt), 1.minute) should be > before
+    executor.close()
+    threadStates().toInt shouldEqual before
+  }
+
+}